@@ -0,0 +1,69 @@
+package org.cassandraproject;
+
+import org.apache.cassandra.service.EmbeddedCassandraService;
+import org.cassandraproject.exception.BackendException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * Starts one in-process Cassandra node per JVM and hands out services connected to it,
+ * so the benchmarks need neither docker nor network access.
+ */
+final class EmbeddedCassandra {
+
+    static final String KEYSPACE = "stadium_bench";
+    private static final int NATIVE_PORT = 9142;
+
+    private static EmbeddedCassandraService cassandra;
+
+    private EmbeddedCassandra() {
+    }
+
+    static synchronized void start() throws IOException {
+        if (cassandra != null) {
+            return;
+        }
+        Path storage = Files.createTempDirectory("cassandra-bench");
+        System.setProperty("cassandra.config", "cassandra-embedded.yaml");
+        System.setProperty("cassandra.storagedir", storage.toString());
+        System.setProperty("cassandra-foreground", "true");
+        System.setProperty("cassandra.native.epoll.enabled", "false");
+
+        cassandra = new EmbeddedCassandraService();
+        cassandra.start();
+    }
+
+    static Properties properties(int numSectors, int seatsPerSector, int numMatches) {
+        Properties properties = new Properties();
+        properties.setProperty("server.address_one", "127.0.0.1");
+        properties.setProperty("server.address_two", "127.0.0.1");
+        properties.setProperty("server.address_three", "127.0.0.1");
+        properties.setProperty("server.port", String.valueOf(NATIVE_PORT));
+        properties.setProperty("db.keyspace", KEYSPACE);
+        properties.setProperty("db.username", "cassandra");
+        properties.setProperty("db.password", "cassandra");
+        properties.setProperty("stadium.num_sectors", String.valueOf(numSectors));
+        properties.setProperty("stadium.num_seats_per_sector", String.valueOf(seatsPerSector));
+        properties.setProperty("stadium.num_matches", String.valueOf(numMatches));
+        return properties;
+    }
+
+    /**
+     * Connects, (re)creates the schema and prepares every statement. The keyspace is created here with a
+     * replication factor of 1, the service's default of 3 leaves lightweight transactions without a quorum
+     * on a single node.
+     */
+    static CassandraService connect(Properties properties, ConnectionManager connectionManager) throws BackendException {
+        connectionManager.getSession().execute("CREATE KEYSPACE IF NOT EXISTS " + KEYSPACE
+                + " WITH replication = {'class': 'SimpleStrategy', 'replication_factor': 1};");
+        CassandraService cassandraService = new CassandraService(properties, connectionManager);
+        cassandraService.createKeySpace();
+        cassandraService.useKeyspace();
+        cassandraService.initTables();
+        cassandraService.prepareStatements();
+        return cassandraService;
+    }
+}
@@ -0,0 +1,73 @@
+package org.cassandraproject;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains one freshly filled {@code reservation_requests} partition per invocation.
+ * Every thread works on its own match, the same way {@link ReservationProcessor} workers own partitions.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ProcessingBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Shared {
+        @Param({"100", "1000"})
+        public int queueSize;
+
+        @Param({"1000"})
+        public int seatsPerSector;
+
+        ConnectionManager connectionManager;
+        CassandraService cassandraService;
+        final AtomicLong nextMatchId = new AtomicLong(1_000_000);
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            EmbeddedCassandra.start();
+            Properties properties = EmbeddedCassandra.properties(4, seatsPerSector, 1);
+            connectionManager = new ConnectionManager(properties);
+            cassandraService = EmbeddedCassandra.connect(properties, connectionManager);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            cassandraService.close();
+            connectionManager.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Queue {
+        long matchId;
+
+        @Setup(Level.Invocation)
+        public void fill(Shared shared) throws Exception {
+            matchId = shared.nextMatchId.getAndIncrement();
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int totalSeats = 4 * shared.seatsPerSector;
+            for (long userId = 1; userId <= shared.queueSize; userId++) {
+                shared.cassandraService.requestSeatReservation(matchId, userId, random.nextInt(totalSeats) + 1);
+            }
+        }
+    }
+
+    @Benchmark
+    public int processReservationRequests(Shared shared, Queue queue) throws Exception {
+        return shared.cassandraService.processReservationRequests(queue.matchId, 500);
+    }
+}
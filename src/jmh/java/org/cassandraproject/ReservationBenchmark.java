@@ -0,0 +1,72 @@
+package org.cassandraproject;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.math.BigInteger;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client-side hot path: single-row user upserts and reservation requests.
+ * Run with several thread counts, e.g. {@code ./gradlew jmh -PjmhThreads=8}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ReservationBenchmark {
+
+    @Param({"1000", "100000"})
+    public int numUsers;
+
+    @Param({"4", "40"})
+    public int numSectors;
+
+    @Param({"250"})
+    public int seatsPerSector;
+
+    @Param({"10"})
+    public int numMatches;
+
+    private ConnectionManager connectionManager;
+    private CassandraService cassandraService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        EmbeddedCassandra.start();
+        Properties properties = EmbeddedCassandra.properties(numSectors, seatsPerSector, numMatches);
+        connectionManager = new ConnectionManager(properties);
+        cassandraService = EmbeddedCassandra.connect(properties, connectionManager);
+        cassandraService.warmSeatCache(numMatches);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        cassandraService.close();
+        connectionManager.close();
+    }
+
+    @Benchmark
+    public void upsertUser() throws Exception {
+        long id = ThreadLocalRandom.current().nextInt(numUsers) + 1;
+        cassandraService.upsertUser(BigInteger.valueOf(id), "User" + id);
+    }
+
+    @Benchmark
+    public boolean requestSeatReservation() throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long matchId = random.nextInt(numMatches) + 1;
+        long userId = random.nextInt(numUsers) + 1;
+        long seatId = random.nextInt(numSectors * seatsPerSector) + 1;
+        return cassandraService.requestSeatReservation(matchId, userId, seatId);
+    }
+}
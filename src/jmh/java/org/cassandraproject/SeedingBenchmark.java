@@ -0,0 +1,82 @@
+package org.cassandraproject;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.nio.file.Files;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One full seeding run per invocation. The loaders parallelise internally,
+ * so the benchmark itself is single threaded and varies {@code seed.parallelism} instead.
+ * {@code seed.parallelism} does not apply to the {@code sstable} mode, which writes from one thread.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(1)
+public class SeedingBenchmark {
+
+    @Param({"10000", "100000"})
+    public int numUsers;
+
+    @Param({"10"})
+    public int numSectors;
+
+    @Param({"1000"})
+    public int seatsPerSector;
+
+    @Param({"32", "256"})
+    public int parallelism;
+
+    /** {@code cql} writes through the driver, {@code sstable} writes SSTables and streams them to the node. */
+    @Param({"cql", "sstable"})
+    public String seedMode;
+
+    private ConnectionManager connectionManager;
+    private CassandraService cassandraService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        EmbeddedCassandra.start();
+        Properties properties = EmbeddedCassandra.properties(numSectors, seatsPerSector, 10);
+        properties.setProperty("seed.parallelism", String.valueOf(parallelism));
+        properties.setProperty("seed.mode", seedMode);
+        properties.setProperty("seed.sstable_dir", Files.createTempDirectory("sstables-bench").toString());
+        // Every invocation must write its rows instead of being skipped by the seed manifest
+        properties.setProperty("seed.force", "true");
+        connectionManager = new ConnectionManager(properties);
+        cassandraService = EmbeddedCassandra.connect(properties, connectionManager);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        cassandraService.close();
+        connectionManager.close();
+    }
+
+    @Benchmark
+    public void seedUsers() throws Exception {
+        cassandraService.seedUsers(numUsers);
+    }
+
+    @Benchmark
+    public void seedSectors() throws Exception {
+        cassandraService.seedSectors(numSectors, seatsPerSector);
+    }
+
+    @Benchmark
+    public void seedMatches() throws Exception {
+        cassandraService.seedMatches(10);
+    }
+}
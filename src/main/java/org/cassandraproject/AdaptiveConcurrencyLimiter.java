@@ -0,0 +1,195 @@
+package org.cassandraproject;
+
+import com.datastax.driver.core.exceptions.NoHostAvailableException;
+import com.datastax.driver.core.exceptions.OperationTimedOutException;
+import com.datastax.driver.core.exceptions.OverloadedException;
+import com.datastax.driver.core.exceptions.ReadTimeoutException;
+import com.datastax.driver.core.exceptions.WriteTimeoutException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * AIMD limit on the number of reservation requests in flight.
+ * Every request that completes within {@code targetLatencyNanos} while the limit is in use grows the limit by
+ * {@code 1/limit}, so roughly by one per round trip. A slow request or an overload error multiplies it by
+ * {@code backoffRatio}, at most once per target latency so one bad window is not punished repeatedly.
+ * While the limit is reached, {@link #acquire()} blocks its caller and {@link #acquireAsync()} queues a future
+ * that {@link #release(long, boolean)} completes once a permit is free. The async path never blocks a thread,
+ * so it is safe on driver I/O threads and virtual threads.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetLatencyNanos;
+    private final double backoffRatio;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitReleased = lock.newCondition();
+    private final Queue<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+
+    private double limit;
+    private int inFlight;
+    private long lastDecreaseNanos;
+    private long increases;
+    private long decreases;
+    private long throttled;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long targetLatencyNanos, double backoffRatio) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetLatencyNanos = targetLatencyNanos;
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.lastDecreaseNanos = System.nanoTime() - targetLatencyNanos;
+    }
+
+    public void acquire() throws InterruptedException {
+        lock.lock();
+        try {
+            if (!hasPermit()) {
+                throttled++;
+                while (!hasPermit()) {
+                    permitReleased.await();
+                }
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes a permit without blocking.
+     *
+     * @return a future completed once the permit is taken, right away unless the limit is reached
+     */
+    public CompletableFuture<Void> acquireAsync() {
+        lock.lock();
+        try {
+            if (waiters.isEmpty() && hasPermit()) {
+                inFlight++;
+                return CompletableFuture.completedFuture(null);
+            }
+            throttled++;
+            CompletableFuture<Void> permit = new CompletableFuture<>();
+            waiters.add(permit);
+            return permit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases a permit taken by {@link #acquire()} or {@link #acquireAsync()}.
+     *
+     * @param latencyNanos how long the request took
+     * @param overloaded   whether it failed with an error that signals an overloaded cluster
+     */
+    public void release(long latencyNanos, boolean overloaded) {
+        List<CompletableFuture<Void>> granted = new ArrayList<>();
+        lock.lock();
+        try {
+            boolean saturated = inFlight >= (int) limit / 2;
+            inFlight--;
+            int before = (int) limit;
+            long now = System.nanoTime();
+            if (overloaded || latencyNanos > targetLatencyNanos) {
+                if (now - lastDecreaseNanos >= targetLatencyNanos) {
+                    limit = Math.max(minLimit, limit * backoffRatio);
+                    lastDecreaseNanos = now;
+                }
+            } else if (saturated) {
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            }
+            int after = (int) limit;
+            if (after > before) {
+                increases++;
+            } else if (after < before) {
+                decreases++;
+            }
+            // Queued async callers first, they have no thread of their own to retry
+            while (!waiters.isEmpty() && hasPermit()) {
+                inFlight++;
+                granted.add(waiters.poll());
+            }
+            permitReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        // Outside the lock, the futures run their continuations on this thread
+        for (CompletableFuture<Void> permit : granted) {
+            permit.complete(null);
+        }
+    }
+
+    private boolean hasPermit() {
+        return inFlight < (int) limit;
+    }
+
+    /**
+     * Whether {@code error}, or one of its causes, means the cluster could not keep up.
+     */
+    public static boolean signalsOverload(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof OverloadedException || t instanceof WriteTimeoutException || t instanceof ReadTimeoutException
+                    || t instanceof OperationTimedOutException || t instanceof NoHostAvailableException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getIncreases() {
+        lock.lock();
+        try {
+            return increases;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getDecreases() {
+        lock.lock();
+        try {
+            return decreases;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getThrottled() {
+        lock.lock();
+        try {
+            return throttled;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        lock.lock();
+        try {
+            return String.format("Concurrency limit: %d (%d increases, %d decreases), %d requests throttled",
+                    (int) limit, increases, decreases, throttled);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package org.cassandraproject;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * When the {@code i}-th client arrives, relative to the start of the run.
+ */
+public enum ArrivalProfile {
+    /** Every client starts at once, like the moment tickets go on sale. */
+    BURST,
+    /** Clients arrive at a fixed {@code rate} per second. */
+    CONSTANT,
+    /** The arrival rate grows linearly from 0 to {@code rate} over {@code rampUpSeconds}, then stays constant. */
+    RAMP;
+
+    public long offsetNanos(long clientIndex, double rate, double rampUpSeconds) {
+        if (this == BURST || rate <= 0) {
+            return 0;
+        }
+        double seconds;
+        if (this == CONSTANT || rampUpSeconds <= 0) {
+            seconds = clientIndex / rate;
+        } else {
+            // During the ramp, arrivals so far are rate * t^2 / (2 * rampUp); solve that for t.
+            double rampArrivals = rate * rampUpSeconds / 2;
+            seconds = clientIndex < rampArrivals
+                    ? Math.sqrt(2 * rampUpSeconds * clientIndex / rate)
+                    : rampUpSeconds + (clientIndex - rampArrivals) / rate;
+        }
+        return (long) (seconds * TimeUnit.SECONDS.toNanos(1));
+    }
+}
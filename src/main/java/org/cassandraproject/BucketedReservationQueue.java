@@ -0,0 +1,254 @@
+package org.cassandraproject;
+
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.schemabuilder.Create;
+import com.datastax.driver.core.schemabuilder.SchemaBuilder;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.cassandraproject.exception.BackendException;
+import org.cassandraproject.metrics.Operation;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * Reservation queue partitioned by {@code (match_id, time_bucket, shard)} and ordered by {@code request_time}.
+ * A popular match is spread over {@code shards} partitions per bucket instead of one ever-growing partition,
+ * and processed buckets are dropped with one partition delete per shard instead of a tombstone per request.
+ * Rows that are never consumed expire with the table's default TTL.
+ * <p>
+ * Every match has a cursor, the oldest bucket not yet dropped, persisted in {@code reservation_queue_cursors}.
+ * Within open buckets the last processed clustering key of each shard is kept in memory.
+ * <p>
+ * {@code request_time} is stamped by the client before the write, and writes can land out of stamp order
+ * (concurrent clients, coalescing, retries, clock skew). A drain therefore only reads up to the watermark
+ * {@code now - graceMillis}, so a row stamped earlier cannot land behind a shard's position as long as it lands
+ * within {@code graceMillis} of its stamp. A bucket is dropped once the watermark has passed its end and all its
+ * shards were read. Writes acknowledged later than that are reported by {@link #landedLate(long)} and must be
+ * enqueued again with a fresh stamp.
+ */
+@Slf4j
+public class BucketedReservationQueue {
+
+    static final String TABLE = "reservation_requests_bucketed";
+
+    private static final String INSERT = "INSERT INTO " + TABLE + " (match_id, time_bucket, shard, request_time, user_id, seat_id) VALUES (?, ?, ?, ?, ?, ?);";
+    private static final String SELECT_AFTER = "SELECT request_time, user_id, seat_id FROM " + TABLE
+            + " WHERE match_id = ? AND time_bucket = ? AND shard = ? AND (request_time, user_id) > (?, ?) AND (request_time, user_id) <= (?, ?);";
+    private static final String DELETE_PARTITION = "DELETE FROM " + TABLE + " WHERE match_id = ? AND time_bucket = ? AND shard = ?;";
+    private static final String SELECT_CURSOR = "SELECT time_bucket FROM reservation_queue_cursors WHERE match_id = ?;";
+    private static final String UPDATE_CURSOR = "INSERT INTO reservation_queue_cursors (match_id, time_bucket) VALUES (?, ?);";
+
+    /**
+     * Handles one queued request; called in {@code request_time} order within a shard.
+     */
+    public interface RequestHandler {
+        void handle(long matchId, long userId, long seatId, Date requestTime) throws BackendException;
+    }
+
+    /**
+     * Learns how many read requests left the queue with a dropped or expired bucket.
+     */
+    public interface RemovalHandler {
+        void removed(long matchId, long requests);
+    }
+
+    /**
+     * Coalescing key of a queue partition.
+     */
+    @Value
+    public static class Partition {
+        long matchId;
+        long timeBucket;
+        int shard;
+    }
+
+    private final String keySpace;
+    private final StatementRegistry statements;
+    private final BiFunction<Operation, Statement, ResultSet> executor;
+    private final long bucketMillis;
+    private final int shards;
+    private final long graceMillis;
+    private final int ttlSeconds;
+    private final int lookbackBuckets;
+    private final Map<Long, MatchCursor> cursors = new ConcurrentHashMap<>();
+
+    public BucketedReservationQueue(String keySpace, StatementRegistry statements,
+                                    BiFunction<Operation, Statement, ResultSet> executor,
+                                    long bucketMillis, int shards, long graceMillis, int ttlSeconds, int lookbackBuckets) {
+        this.keySpace = keySpace;
+        this.statements = statements;
+        this.executor = executor;
+        this.bucketMillis = bucketMillis;
+        this.shards = shards;
+        this.graceMillis = graceMillis;
+        this.ttlSeconds = ttlSeconds;
+        this.lookbackBuckets = lookbackBuckets;
+    }
+
+    /**
+     * {@code CREATE TABLE} statements of the queue and its cursors, by table name.
+     */
+    public Map<String, Statement> tables() {
+        Create create = SchemaBuilder.createTable(this.keySpace, TABLE)
+                .ifNotExists()
+                .addPartitionKey("match_id", DataType.bigint())
+                .addPartitionKey("time_bucket", DataType.bigint())
+                .addPartitionKey("shard", DataType.cint())
+                .addClusteringColumn("request_time", DataType.timestamp())
+                .addClusteringColumn("user_id", DataType.bigint())
+                .addColumn("seat_id", DataType.bigint());
+
+        Create cursors = SchemaBuilder.createTable(this.keySpace, "reservation_queue_cursors")
+                .ifNotExists()
+                .addPartitionKey("match_id", DataType.bigint())
+                .addColumn("time_bucket", DataType.bigint());
+
+        Map<String, Statement> tables = new LinkedHashMap<>();
+        tables.put(TABLE, create.withOptions().defaultTimeToLive(ttlSeconds));
+        tables.put("reservation_queue_cursors", cursors);
+        return tables;
+    }
+
+    public void prepareStatements() {
+        statements.prepare(INSERT);
+        statements.prepare(SELECT_AFTER);
+        statements.prepare(DELETE_PARTITION);
+        statements.prepare(SELECT_CURSOR);
+        statements.prepare(UPDATE_CURSOR);
+    }
+
+    public Partition partitionOf(long matchId, long userId, long requestTimeMillis) {
+        return new Partition(matchId, requestTimeMillis / bucketMillis, shardOf(userId));
+    }
+
+    public Statement enqueue(long matchId, long userId, long seatId, long requestTimeMillis) {
+        return statements.bind(INSERT, matchId, requestTimeMillis / bucketMillis, shardOf(userId),
+                new Date(requestTimeMillis), userId, seatId);
+    }
+
+    /**
+     * Whether a request stamped {@code requestTimeMillis}, whose write was just acknowledged, may have landed after
+     * a drain had read past its stamp. Such a request may never be read and has to be enqueued again.
+     */
+    public boolean landedLate(long requestTimeMillis) {
+        return System.currentTimeMillis() - requestTimeMillis > graceMillis;
+    }
+
+    /**
+     * Processes everything queued for {@code matchId} since the last call, oldest bucket first,
+     * and drops buckets that are closed and fully read. The requests read from a bucket are reported to
+     * {@code removal} once the bucket is gone, so a bucket read again after a restart reports them once.
+     *
+     * @return number of requests handed to {@code handler}
+     */
+    public int drain(long matchId, int fetchSize, RequestHandler handler, RemovalHandler removal) throws BackendException {
+        MatchCursor cursor = cursor(matchId);
+        long now = System.currentTimeMillis();
+        long watermark = now - graceMillis;
+        long lastBucket = watermark / bucketMillis;
+        long oldestLiveBucket = (now - ttlSeconds * 1000L) / bucketMillis;
+        if (cursor.firstBucket < oldestLiveBucket) {
+            // Everything older has expired through the table TTL, no need to visit it
+            cursor.buckets.entrySet().removeIf(entry -> {
+                if (entry.getKey() >= oldestLiveBucket) {
+                    return false;
+                }
+                removal.removed(matchId, entry.getValue().read);
+                return true;
+            });
+            cursor.firstBucket = oldestLiveBucket;
+        }
+        int processed = 0;
+
+        for (long bucket = cursor.firstBucket; bucket <= lastBucket; bucket++) {
+            BucketProgress progress = cursor.buckets.computeIfAbsent(bucket, b -> new BucketProgress(shards));
+            for (int shard = 0; shard < shards; shard++) {
+                int read = drainShard(matchId, bucket, shard, progress.positions, watermark, fetchSize, handler);
+                progress.read += read;
+                processed += read;
+            }
+
+            boolean closed = (bucket + 1) * bucketMillis <= watermark;
+            if (closed && bucket == cursor.firstBucket) {
+                dropBucket(matchId, bucket);
+                cursor.buckets.remove(bucket);
+                removal.removed(matchId, progress.read);
+                cursor.firstBucket = bucket + 1;
+                executor.apply(Operation.QUEUE_CURSOR, statements.bind(UPDATE_CURSOR, matchId, cursor.firstBucket));
+            }
+        }
+        return processed;
+    }
+
+    /**
+     * Reads the shard from its position up to and including {@code watermark}; the position never passes it.
+     */
+    private int drainShard(long matchId, long bucket, int shard, long[][] positions, long watermark, int fetchSize,
+                           RequestHandler handler) throws BackendException {
+        int processed = 0;
+        Statement select = statements.bind(SELECT_AFTER, matchId, bucket, shard,
+                new Date(positions[shard][0]), positions[shard][1], new Date(watermark), Long.MAX_VALUE).setFetchSize(fetchSize);
+        for (Row row : executor.apply(Operation.SELECT_REQUESTS, select)) {
+            long userId = row.getLong("user_id");
+            Date requestTime = row.getTimestamp("request_time");
+            handler.handle(matchId, userId, row.getLong("seat_id"), requestTime);
+            positions[shard][0] = requestTime.getTime();
+            positions[shard][1] = userId;
+            processed++;
+        }
+        return processed;
+    }
+
+    private void dropBucket(long matchId, long bucket) {
+        for (int shard = 0; shard < shards; shard++) {
+            executor.apply(Operation.DROP_BUCKET, statements.bind(DELETE_PARTITION, matchId, bucket, shard));
+        }
+        log.debug("Dropped bucket " + bucket + " of match " + matchId);
+    }
+
+    private MatchCursor cursor(long matchId) {
+        return cursors.computeIfAbsent(matchId, id -> {
+            Row row = executor.apply(Operation.QUEUE_CURSOR, statements.bind(SELECT_CURSOR, id)).one();
+            long first = row != null
+                    ? row.getLong("time_bucket")
+                    : System.currentTimeMillis() / bucketMillis - lookbackBuckets;
+            return new MatchCursor(first);
+        });
+    }
+
+    private int shardOf(long userId) {
+        return (int) Math.floorMod(userId, (long) shards);
+    }
+
+    private static final class MatchCursor {
+        private long firstBucket;
+        private final Map<Long, BucketProgress> buckets = new ConcurrentHashMap<>();
+
+        private MatchCursor(long firstBucket) {
+            this.firstBucket = firstBucket;
+        }
+    }
+
+    /**
+     * What this process has read of an open bucket: the last clustering key per shard and the number of requests.
+     */
+    private static final class BucketProgress {
+        private final long[][] positions;
+        private long read;
+
+        private BucketProgress(int shards) {
+            this.positions = new long[shards][2];
+            for (long[] position : positions) {
+                position[0] = 0;
+                position[1] = Long.MIN_VALUE;
+            }
+        }
+    }
+}
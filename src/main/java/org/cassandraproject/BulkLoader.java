@@ -0,0 +1,98 @@
+package org.cassandraproject;
+
+import com.datastax.driver.core.Statement;
+import lombok.extern.slf4j.Slf4j;
+import org.cassandraproject.exception.BackendException;
+import org.cassandraproject.metrics.LoadTestMetrics;
+import org.cassandraproject.metrics.Operation;
+import org.cassandraproject.metrics.Outcome;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Writes statements with {@code executeAsync}, keeping at most {@code parallelism} of them in flight.
+ * Transient failures are retried by the {@link RetryingExecutor} before they fail the run.
+ * {@link #submit(Statement)} blocks once the window is full; {@link #await()} drains it and reports rows/s.
+ * A loader is meant to be used by a single producer thread for one seeding run.
+ */
+@Slf4j
+public class BulkLoader {
+
+    private final RetryingExecutor executor;
+    private final String name;
+    private final int parallelism;
+    private final Semaphore inFlight;
+    private final LoadTestMetrics metrics;
+    private final Operation operation;
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final long startNanos;
+
+    public BulkLoader(RetryingExecutor executor, String name, int parallelism, LoadTestMetrics metrics, Operation operation) {
+        this.executor = executor;
+        this.name = name;
+        this.parallelism = parallelism;
+        this.inFlight = new Semaphore(parallelism);
+        this.metrics = metrics;
+        this.operation = operation;
+        this.startNanos = System.nanoTime();
+    }
+
+    public void submit(Statement statement) throws BackendException {
+        checkFailure();
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BackendException("Interrupted while seeding " + name, e);
+        }
+
+        long start = System.nanoTime();
+        executor.executeAsync(statement).whenComplete((result, t) -> {
+            if (t == null) {
+                metrics.record(operation, start, Outcome.SUCCESS);
+                written.incrementAndGet();
+            } else {
+                metrics.record(operation, start, Outcome.ERROR);
+                failure.compareAndSet(null, t);
+            }
+            inFlight.release();
+        });
+    }
+
+    /**
+     * Waits until every statement submitted so far has completed, without ending the run.
+     */
+    public void flush() throws BackendException {
+        try {
+            inFlight.acquire(parallelism);
+            inFlight.release(parallelism);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BackendException("Interrupted while waiting for " + name + " seeding", e);
+        }
+        checkFailure();
+    }
+
+    /**
+     * Waits for every submitted statement to complete and returns the number of rows written.
+     */
+    public long await() throws BackendException {
+        flush();
+
+        long rows = written.get();
+        double seconds = Math.max(System.nanoTime() - startNanos, 1) / 1_000_000_000.0;
+        log.info(String.format("Seeded %d %s rows in %.2f s (%.0f rows/s)", rows, name, seconds, rows / seconds));
+        return rows;
+    }
+
+    private void checkFailure() throws BackendException {
+        Throwable t = failure.get();
+        if (t != null) {
+            throw new BackendException("Error seeding " + name + ": " + t.getMessage(),
+                    t instanceof Exception ? (Exception) t : new RuntimeException(t));
+        }
+    }
+}
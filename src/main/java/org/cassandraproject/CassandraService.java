@@ -4,151 +4,264 @@ import com.datastax.driver.core.*;
 import com.datastax.driver.core.schemabuilder.Create;
 import com.datastax.driver.core.schemabuilder.KeyspaceOptions;
 import com.datastax.driver.core.schemabuilder.SchemaBuilder;
+import com.google.common.collect.ImmutableMap;
+import lombok.Getter;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import org.cassandraproject.exception.BackendException;
+import org.cassandraproject.metrics.LoadTestMetrics;
+import org.cassandraproject.metrics.Operation;
+import org.cassandraproject.metrics.Outcome;
 
+import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.sql.Timestamp;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
-import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
 
 @Slf4j
 public class CassandraService {
-    private static PreparedStatement SELECT_ALL_FROM_USERS;
-	private static PreparedStatement INSERT_INTO_USERS;
-	private static PreparedStatement DELETE_ALL_FROM_USERS;
+    private static final String SELECT_ALL_FROM_USERS = "SELECT * FROM users;";
+    private static final String INSERT_INTO_USERS = "INSERT INTO users (id,name) VALUES (?, ?);";
+    private static final String DELETE_ALL_FROM_USERS = "TRUNCATE users;";
+    private static final String INSERT_INTO_SECTORS = "INSERT INTO sectors (id, name) VALUES (?, ?);";
+    private static final String INSERT_INTO_SEATS = "INSERT INTO seats (id, number, sector_id) VALUES (?, ?, ?);";
+    private static final String INSERT_INTO_MATCHES = "INSERT INTO matches (id, name, match_datetime) VALUES (?, ?, ?);";
+    private static final String INSERT_INTO_RESERVATION_REQUESTS = "INSERT INTO reservation_requests (match_id, user_id, seat_id, request_time) VALUES (?, ?, ?, dateof(now()));";
+    private static final String SELECT_RESERVATION_REQUESTS_FOR_MATCH = "SELECT user_id, seat_id, request_time, writetime(seat_id) AS written FROM reservation_requests WHERE match_id = ?;";
+    private static final String INSERT_INTO_MATCH_SEATS = "INSERT INTO match_seats (match_id, seat_id, user_id) VALUES (?, ?, ?) IF NOT EXISTS;";
+    private static final String RELEASE_MATCH_SEAT = "DELETE FROM match_seats WHERE match_id = ? AND seat_id = ? IF user_id = ?;";
+    private static final String INSERT_INTO_MATCH_USERS_SEATS = "INSERT INTO match_users_seats (match_id, user_id, seat_id) VALUES (?, ?, ?) IF NOT EXISTS;";
+    private static final String DELETE_FROM_RESERVATION_REQUESTS = "DELETE FROM reservation_requests USING TIMESTAMP ? WHERE match_id = ? AND user_id = ?;";
+    private static final String DELETE_RESERVATION_REQUESTS_PARTITION = "DELETE FROM reservation_requests WHERE match_id = ?;";
+    private static final String SELECT_MATCH_RESERVATIONS = "SELECT match_id, user_id, seat_id FROM match_users_seats WHERE match_id = ?;";
+    private static final String SELECT_ALL_RESERVATIONS = "SELECT match_id, user_id, seat_id FROM match_users_seats;";
+    private static final String SELECT_SEED_MANIFEST = "SELECT row_count, checksum, chunk_size, completed_chunks, complete FROM seed_manifest WHERE table_name = ?;";
+    private static final String UPSERT_SEED_MANIFEST = "INSERT INTO seed_manifest (table_name, row_count, checksum, chunk_size, completed_chunks, complete, updated_at) VALUES (?, ?, ?, ?, ?, ?, toTimestamp(now()));";
+    private static final String SELECT_TAKEN_SEATS = "SELECT seat_id FROM match_users_seats WHERE match_id = ?;";
+    private static final String INSERT_RESERVATION_RESULT = "INSERT INTO reservation_results (match_id, user_id, seat_id, outcome, requested_at, decided_at) VALUES (?, ?, ?, ?, ?, ?);";
+    private static final String SELECT_RESERVATION_RESULT = "SELECT seat_id, outcome FROM reservation_results WHERE match_id = ? AND user_id = ?;";
 	private static final String USER_FORMAT = "- ID: %-10d name: %-16s";
 
-    private final List<String> addresses = new ArrayList<>();
-    private String selectedAddress;
-    private Integer port;
-    private String keySpace;
-    private String passwordDB;
-    private String usernameDB;
-
-    private Session session;
-
-    public CassandraService(Properties properties){
-        log.debug("Initializing variables in CassandraService in "+Thread.currentThread().getName());
-        initVariables(properties);
-        this.selectedAddress = getRandomAddress();
-        log.debug("Thread: "+Thread.currentThread().getName()+" picked: "+this.selectedAddress);
-
-        try {
-            Cluster cluster = Cluster.builder()
-                .addContactPoint(this.selectedAddress)
-                .withPort(this.port)
-                .withCredentials(this.usernameDB, this.passwordDB)
-                .build();
-
-            log.debug("Trying to connect...");
-            log.debug("Trying to connect to Cassandra cluster at " + selectedAddress);
-            this.session = cluster.connect();
-            log.debug("Connected to cluster");
-        } catch (Exception e) {
-            log.error(e.getMessage());
-            log.error("Failed connecting to cluster");
+    private final String keySpace;
+
+    private final Session session;
+    private final StatementRegistry statements;
+    private final int seedParallelism;
+    private final int seedChunkSize;
+    private final boolean seedForce;
+    private final SSTableSeeder sstableSeeder;
+    private final int warmFetchSize;
+    private final int exportFetchSize;
+    @Getter
+    private final ContentionStats contentionStats = new ContentionStats();
+    private final SeatAvailabilityCache seatCache;
+    private final MatchCounters counters;
+    private final ReservationCoalescer coalescer;
+    private final BucketedReservationQueue bucketedQueue;
+    private final TokenRangeScanner scanner;
+    private final RetryingExecutor retrying;
+    private final AdaptiveConcurrencyLimiter limiter;
+    @Getter
+    private final LoadTestMetrics metrics = new LoadTestMetrics();
+    private final ReservationOutcomeRegistry outcomes = new ReservationOutcomeRegistry(metrics);
+
+    public CassandraService(Properties properties, ConnectionManager connectionManager){
+        log.debug("Initializing CassandraService in "+Thread.currentThread().getName());
+        this.seedParallelism = Integer.parseInt(System.getenv().getOrDefault("CASSANDRA_SEED_PARALLELISM", properties.getProperty("seed.parallelism", "256")));
+        this.seedChunkSize = Integer.parseInt(System.getenv().getOrDefault("CASSANDRA_SEED_CHUNK_SIZE", properties.getProperty("seed.chunk_size", "10000")));
+        this.seedForce = Boolean.parseBoolean(System.getenv().getOrDefault("CASSANDRA_SEED_FORCE", properties.getProperty("seed.force", "false")));
+        this.keySpace = connectionManager.getKeySpace();
+        this.session = connectionManager.getSession();
+        String seedMode = System.getenv().getOrDefault("CASSANDRA_SEED_MODE", properties.getProperty("seed.mode", "cql")).toLowerCase(Locale.ROOT);
+        this.sstableSeeder = !seedMode.startsWith("sstable") ? null : new SSTableSeeder(this.session, this.keySpace,
+                Paths.get(System.getenv().getOrDefault("CASSANDRA_SEED_SSTABLE_DIR", properties.getProperty("seed.sstable_dir", "sstables"))),
+                Integer.parseInt(System.getenv().getOrDefault("CASSANDRA_SEED_SSTABLE_BUFFER_MB", properties.getProperty("seed.sstable_buffer_mb", "128"))),
+                !"sstable_files".equals(seedMode));
+        this.statements = new StatementRegistry(this.session);
+        this.retrying = new RetryingExecutor(this.session,
+                Integer.parseInt(System.getenv().getOrDefault("RETRY_MAX_ATTEMPTS", properties.getProperty("resilience.retry.max_attempts", "5"))),
+                Long.parseLong(System.getenv().getOrDefault("RETRY_BASE_DELAY_MICROS", properties.getProperty("resilience.retry.base_delay_micros", "10000"))),
+                Long.parseLong(System.getenv().getOrDefault("RETRY_MAX_DELAY_MICROS", properties.getProperty("resilience.retry.max_delay_micros", "1000000"))));
+        boolean limit = Boolean.parseBoolean(System.getenv().getOrDefault("LIMITER_ENABLED", properties.getProperty("resilience.limiter.enabled", "true")));
+        this.limiter = !limit ? null : new AdaptiveConcurrencyLimiter(
+                Integer.parseInt(System.getenv().getOrDefault("LIMITER_INITIAL", properties.getProperty("resilience.limiter.initial", "64"))),
+                Integer.parseInt(System.getenv().getOrDefault("LIMITER_MIN", properties.getProperty("resilience.limiter.min", "4"))),
+                Integer.parseInt(System.getenv().getOrDefault("LIMITER_MAX", properties.getProperty("resilience.limiter.max", "1024"))),
+                TimeUnit.MILLISECONDS.toNanos(Long.parseLong(System.getenv().getOrDefault("LIMITER_TARGET_LATENCY_MS", properties.getProperty("resilience.limiter.target_latency_ms", "50")))),
+                Double.parseDouble(System.getenv().getOrDefault("LIMITER_BACKOFF_RATIO", properties.getProperty("resilience.limiter.backoff_ratio", "0.9"))));
+        registerResilienceCounters();
+
+        int numSectors = Integer.parseInt(System.getenv().getOrDefault("ENV_NUM_SECTORS",properties.getProperty("stadium.num_sectors")));
+        int numSeatsPerSectors = Integer.parseInt(System.getenv().getOrDefault("ENV_NUM_SEATS_SECTOR",properties.getProperty("stadium.num_seats_per_sector")));
+        int cacheMaxMatches = Integer.parseInt(System.getenv().getOrDefault("SEAT_CACHE_MAX_MATCHES", properties.getProperty("seat_cache.max_matches", "64")));
+        this.warmFetchSize = Integer.parseInt(System.getenv().getOrDefault("PROCESSOR_FETCH_SIZE", properties.getProperty("processor.fetch_size", "500")));
+        this.exportFetchSize = Integer.parseInt(System.getenv().getOrDefault("EXPORT_FETCH_SIZE", properties.getProperty("export.fetch_size", "1000")));
+        this.seatCache = new SeatAvailabilityCache(numSectors * numSeatsPerSectors, cacheMaxMatches, this::loadTakenSeats);
+
+        boolean countersEnabled = Boolean.parseBoolean(System.getenv().getOrDefault("COUNTERS_ENABLED", properties.getProperty("counters.enabled", "true")));
+        this.counters = !countersEnabled ? null : new MatchCounters(this.keySpace, this.statements, this::execute, numSectors, numSeatsPerSectors,
+                Long.parseLong(System.getenv().getOrDefault("COUNTERS_REFRESH_MS", properties.getProperty("counters.refresh_ms", "1000"))));
+        if (counters != null) {
+            metrics.registerCounter("sold_out_rejections", counters::getRejected);
+            metrics.registerCounter("pending_requests", counters::getPendingTotal);
         }
-    }
-
-    public void initTables() throws BackendException {
-        // Create tables first
-            createTableUsers();
-            createTableSectors();
-            createTableSeats();
-            createTableMatches();
-            createTableReservationRequests();
-            createMatchUsersSeatsTable();
 
+        boolean bucketed = "bucketed".equalsIgnoreCase(System.getenv().getOrDefault("QUEUE_LAYOUT", properties.getProperty("queue.layout", "simple")));
+        this.bucketedQueue = !bucketed ? null : new BucketedReservationQueue(this.keySpace, this.statements, this::execute,
+                Long.parseLong(System.getenv().getOrDefault("QUEUE_BUCKET_MILLIS", properties.getProperty("queue.bucket_millis", "5000"))),
+                Integer.parseInt(System.getenv().getOrDefault("QUEUE_SHARDS", properties.getProperty("queue.shards", "4"))),
+                Long.parseLong(System.getenv().getOrDefault("QUEUE_GRACE_MILLIS", properties.getProperty("queue.grace_millis", "2000"))),
+                Integer.parseInt(System.getenv().getOrDefault("QUEUE_TTL_SECONDS", properties.getProperty("queue.ttl_seconds", "3600"))),
+                Integer.parseInt(System.getenv().getOrDefault("QUEUE_LOOKBACK_BUCKETS", properties.getProperty("queue.lookback_buckets", "12"))));
+
+        boolean coalesce = Boolean.parseBoolean(System.getenv().getOrDefault("COALESCE_ENABLED", properties.getProperty("coalesce.enabled", "false")));
+        long coalesceWindowMicros = Long.parseLong(System.getenv().getOrDefault("COALESCE_WINDOW_MICROS", properties.getProperty("coalesce.window_micros", "2000")));
+        int coalesceMaxRows = Integer.parseInt(System.getenv().getOrDefault("COALESCE_MAX_ROWS", properties.getProperty("coalesce.max_rows", "64")));
+        this.coalescer = coalesce ? new ReservationCoalescer(this.retrying, this.metrics, coalesceWindowMicros, coalesceMaxRows) : null;
+
+        this.scanner = new TokenRangeScanner(this.session, this.keySpace, this.statements, this.metrics,
+                Integer.parseInt(System.getenv().getOrDefault("SCAN_PARALLELISM", properties.getProperty("scan.parallelism", "8"))),
+                Integer.parseInt(System.getenv().getOrDefault("SCAN_SPLITS_PER_RANGE", properties.getProperty("scan.splits_per_range", "4"))),
+                Integer.parseInt(System.getenv().getOrDefault("SCAN_MAX_RETRIES", properties.getProperty("scan.max_retries", "3"))),
+                this.exportFetchSize);
     }
 
-    private String getRandomAddress() {
-        Random random = new Random();
-        int index = random.nextInt(this.addresses.size());
-        return this.addresses.get(index);
+    private void registerResilienceCounters() {
+        metrics.registerCounter("pending_outcomes", outcomes::size);
+        metrics.registerCounter("retries", retrying::getRetries);
+        metrics.registerCounter("retries_exhausted", retrying::getExhausted);
+        if (limiter != null) {
+            metrics.registerCounter("limiter_limit", limiter::getLimit);
+            metrics.registerCounter("limiter_increases", limiter::getIncreases);
+            metrics.registerCounter("limiter_decreases", limiter::getDecreases);
+            metrics.registerCounter("limiter_throttled", limiter::getThrottled);
+        }
+        Metrics driverMetrics = session.getCluster().getMetrics();
+        if (driverMetrics != null) {
+            metrics.registerCounter("speculative_executions", () -> driverMetrics.getErrorMetrics().getSpeculativeExecutions().getCount());
+        }
     }
 
-    private void initVariables(Properties properties){
-        String addressOne = System.getenv().getOrDefault("CASSANDRA_SERVER_ADDRESS_ONE", properties.getProperty("server.address_one"));
-        String addressTwo = System.getenv().getOrDefault("CASSANDRA_SERVER_ADDRESS_TWO", properties.getProperty("server.address_two"));
-        String addressThree = System.getenv().getOrDefault("CASSANDRA_SERVER_ADDRESS_THREE", properties.getProperty("server.address_three"));
-
-        this.port = Integer.parseInt(System.getenv().getOrDefault("CASSANDRA_SERVER_PORT",properties.getProperty("server.port")));
-        this.keySpace = System.getenv().getOrDefault("CASSANDRA_KEYSPACE",properties.getProperty("db.keyspace"));
-        this.usernameDB = System.getenv().getOrDefault("CASSANDRA_USER",properties.getProperty("db.username"));
-        this.passwordDB = System.getenv().getOrDefault("CASSANDRA_PASSWORD",properties.getProperty("db.password"));
-
-        if(addressOne == null){
-            System.out.println("ERROR INITIALIZING VARIABLE address");
-            log.error("ERROR INITIALIZING VARIABLES address one");
-            System.exit(1);
+    /**
+     * Flushes requests still waiting in the coalescer. The session itself belongs to {@link ConnectionManager}.
+     */
+    public void close() {
+        if (coalescer != null) {
+            coalescer.close();
         }
-        if(addressTwo == null){
-            System.out.println("ERROR INITIALIZING VARIABLE address");
-            log.error("ERROR INITIALIZING VARIABLES address two");
-            System.exit(1);
+        if (counters != null) {
+            counters.close();
         }
-        if(addressThree == null){
-            System.out.println("ERROR INITIALIZING VARIABLE address");
-            log.error("ERROR INITIALIZING VARIABLES address three");
-            System.exit(1);
+        retrying.close();
+    }
+
+    /**
+     * Writes the match counter changes not written yet; call once the processor has stopped.
+     */
+    public void flushCounters() {
+        if (counters != null) {
+            counters.flush();
         }
+    }
 
-        this.addresses.add(addressOne);
-        this.addresses.add(addressTwo);
-        this.addresses.add(addressThree);
+    /**
+     * Creates the tables that do not exist yet, see {@link SchemaBootstrap}.
+     */
+    public void initTables() throws BackendException {
+        new SchemaBootstrap(session, keySpace).bootstrap(tables());
+    }
 
-        if(this.port == null){
-            System.out.println("ERROR INITIALIZING VARIABLE port");
-            log.error("ERROR INITIALIZING VARIABLES port");
-            System.exit(1);
-        }
-        if(this.keySpace == null){
-            System.out.println("ERROR INITIALIZING VARIABLE keySpace");
-            log.error("ERROR INITIALIZING VARIABLES keySpace");
-            System.exit(1);
+    private Map<String, Statement> tables() {
+        Map<String, Statement> tables = new LinkedHashMap<>();
+        tables.put("users", usersTable());
+        tables.put("sectors", sectorsTable());
+        tables.put("seats", seatsTable());
+        tables.put("matches", matchesTable());
+        if (bucketedQueue != null) {
+            tables.putAll(bucketedQueue.tables());
+        } else {
+            tables.put("reservation_requests", reservationRequestsTable());
         }
-        if(this.usernameDB == null){
-            System.out.println("ERROR INITIALIZING VARIABLE usernameDB");
-            log.error("ERROR INITIALIZING VARIABLES usernameDB");
-            System.exit(1);
+        tables.put("match_users_seats", matchUsersSeatsTable());
+        tables.put("match_seats", matchSeatsTable());
+        tables.put("reservation_results", reservationResultsTable());
+        tables.put("seed_manifest", seedManifestTable());
+        if (counters != null) {
+            tables.put("match_counters", counters.table());
         }
-        if(this.passwordDB == null){
-            System.out.println("ERROR INITIALIZING VARIABLE passwordDB");
-            log.error("ERROR INITIALIZING VARIABLES passwordDB");
-            System.exit(1);
-        }
-
-//        System.out.println(this.addresses);
-//        System.out.println(this.port);
-//        System.out.println(this.keySpace);
-//        System.out.println(this.usernameDB);
-//        System.out.println(this.passwordDB);
-
+        return tables;
     }
+
     public void prepareStatements() throws BackendException {
 
         try{
-            SELECT_ALL_FROM_USERS = session.prepare("SELECT * FROM users;");
-            INSERT_INTO_USERS = session.prepare("INSERT INTO users (id,name) VALUES (?, ?);");
-			DELETE_ALL_FROM_USERS = session.prepare("TRUNCATE users;");
+            statements.prepare(SELECT_ALL_FROM_USERS);
+            statements.prepare(INSERT_INTO_USERS);
+            statements.prepare(DELETE_ALL_FROM_USERS);
+            statements.prepare(INSERT_INTO_SECTORS);
+            statements.prepare(INSERT_INTO_SEATS);
+            statements.prepare(INSERT_INTO_MATCHES);
+            if (bucketedQueue != null) {
+                bucketedQueue.prepareStatements();
+            } else {
+                statements.prepare(INSERT_INTO_RESERVATION_REQUESTS);
+                statements.prepare(SELECT_RESERVATION_REQUESTS_FOR_MATCH);
+            }
+            statements.prepare(INSERT_INTO_MATCH_SEATS);
+            statements.prepare(RELEASE_MATCH_SEAT);
+            statements.prepare(INSERT_INTO_MATCH_USERS_SEATS);
+            if (bucketedQueue == null) {
+                statements.prepare(DELETE_FROM_RESERVATION_REQUESTS);
+            }
+            statements.prepare(SELECT_TAKEN_SEATS);
+            statements.prepare(INSERT_RESERVATION_RESULT);
+            statements.prepare(SELECT_RESERVATION_RESULT);
+            statements.prepare(SELECT_MATCH_RESERVATIONS);
+            statements.prepare(SELECT_ALL_RESERVATIONS);
+            statements.prepare(SELECT_SEED_MANIFEST);
+            statements.prepare(UPSERT_SEED_MANIFEST);
+            if (counters != null) {
+                counters.prepareStatements();
+            }
             log.debug("Prepared statements");
         }catch (Exception e){
             throw new BackendException("Could not prepare statements. "+e.getMessage(),e);
         }
     }
 
+    /**
+     * Creates the keyspace unless the driver's schema metadata already knows it.
+     */
     public void createKeySpace() throws BackendException {
+        if (session.getCluster().getMetadata().getKeyspace(this.keySpace) != null) {
+            log.debug("Keyspace " + this.keySpace + " exists");
+            return;
+        }
         KeyspaceOptions keyspaceOptions = SchemaBuilder.createKeyspace(this.keySpace)
                 .ifNotExists()
                 .with()
-                .replication(Map.of("class","SimpleStrategy", "replication_factor",3));
+                .replication(ImmutableMap.of("class","SimpleStrategy", "replication_factor",3));
         keyspaceOptions.setConsistencyLevel(ConsistencyLevel.QUORUM);
 
         try{
@@ -165,201 +278,722 @@ public class CassandraService {
         log.debug("Keyspace switched successful");
     }
 
-    public void createTableUsers() {
-        Create create = SchemaBuilder.createTable(this.keySpace, "users")
+    private Create usersTable() {
+        return SchemaBuilder.createTable(this.keySpace, "users")
                 .ifNotExists()
                 .addPartitionKey("id", DataType.bigint())
                 .addColumn("name", DataType.varchar());
-        session.execute(create);
-        log.info("Table users created successful");
     }
 
-
-    public void createTableSectors(){
-        Create create = SchemaBuilder.createTable(this.keySpace, "sectors")
+    private Create sectorsTable() {
+        return SchemaBuilder.createTable(this.keySpace, "sectors")
                 .ifNotExists()
                 .addPartitionKey("id", DataType.bigint())
                 .addColumn("name",DataType.varchar());
-        session.execute(create);
-        log.info("Table sectors created successful");
     }
 
-    public void createTableSeats(){
-        Create create = SchemaBuilder.createTable(this.keySpace, "seats")
+    private Create seatsTable() {
+        return SchemaBuilder.createTable(this.keySpace, "seats")
                 .ifNotExists()
                 .addPartitionKey("id", DataType.bigint())
                 .addColumn("number",DataType.varchar())
                 .addPartitionKey("sector_id", DataType.bigint());
-        session.execute(create);
-        log.info("Table seats created successful");
     }
 
-    public void createTableMatches(){
-        Create create = SchemaBuilder.createTable(this.keySpace, "matches")
+    private Create matchesTable() {
+        return SchemaBuilder.createTable(this.keySpace, "matches")
                 .ifNotExists()
                 .addPartitionKey("id", DataType.bigint())
                 .addColumn("name", DataType.varchar())
                 .addColumn("match_datetime", DataType.timestamp());
-        session.execute(create);
-        log.info("Table matches created successful");
     }
 
-    public void createMatchUsersSeatsTable(){
-        Create create = SchemaBuilder.createTable(this.keySpace, "match_users_seats")
+    private Create matchUsersSeatsTable() {
+        return SchemaBuilder.createTable(this.keySpace, "match_users_seats")
                 .ifNotExists()
                 .addPartitionKey("match_id", DataType.bigint())
                 .addClusteringColumn("user_id", DataType.bigint())
                 .addColumn("seat_id", DataType.bigint());
-        session.execute(create);
-        session.execute("CREATE INDEX IF NOT EXISTS seat_id_index ON " + this.keySpace + ".match_users_seats (seat_id);");
+    }
 
-        log.info("Table MatchuserSeats created successful");
+    private Create matchSeatsTable() {
+        return SchemaBuilder.createTable(this.keySpace, "match_seats")
+                .ifNotExists()
+                .addPartitionKey("match_id", DataType.bigint())
+                .addClusteringColumn("seat_id", DataType.bigint())
+                .addColumn("user_id", DataType.bigint());
     }
 
-    public void upsertUser(BigInteger id, String name) throws BackendException {
-        BoundStatement bs = new BoundStatement(INSERT_INTO_USERS);
+    /**
+     * Latest outcome per user and match, written by the processor; {@code requested_at} and {@code decided_at}
+     * give the request-to-decision latency even when clients and processor run in different processes.
+     */
+    private Create reservationResultsTable() {
+        return SchemaBuilder.createTable(this.keySpace, "reservation_results")
+                .ifNotExists()
+                .addPartitionKey("match_id", DataType.bigint())
+                .addClusteringColumn("user_id", DataType.bigint())
+                .addColumn("seat_id", DataType.bigint())
+                .addColumn("outcome", DataType.varchar())
+                .addColumn("requested_at", DataType.timestamp())
+                .addColumn("decided_at", DataType.timestamp());
+    }
 
+    public void upsertUser(BigInteger id, String name) throws BackendException {
         // Convert BigInteger to Long
         Long longId = id.longValue();
 
-        bs.bind(longId, name);
+        BoundStatement bs = statements.bindRouted(INSERT_INTO_USERS, longId, longId, name);
 
         try {
-            session.execute(bs);
+            execute(Operation.UPSERT_USER, bs);
         } catch (Exception e) {
             throw new BackendException("Could not perform an upsert. " + e.getMessage() + ".", e);
         }
 
-        log.info("User " + name + " upserted");
+        log.debug("User " + name + " upserted");
     }
 
     public void seedUsers(int numberOfUsers) throws BackendException {
-        for (int i = 1; i <= numberOfUsers; i++) {
-            upsertUser(BigInteger.valueOf(i), "User" + i);
-        }
+        seedTable("users", usersTable(), INSERT_INTO_USERS, numberOfUsers, Operation.SEED_USERS,
+                i -> new Object[]{i + 1, "User" + (i + 1)});
         log.info(numberOfUsers + " users seeded.");
     }
 
     public void seedSectors(int numberOfSectors, int seatsPerSector) throws BackendException {
-        int currentVal = 1;
-        for (int i = 1; i <= numberOfSectors; i++) {
-            createSector(BigInteger.valueOf(i), seatsPerSector, BigInteger.valueOf(currentVal));
-            currentVal += seatsPerSector;
-        }
+        seedTable("sectors", sectorsTable(), INSERT_INTO_SECTORS, numberOfSectors, Operation.SEED_SECTORS,
+                i -> new Object[]{i + 1, "Sector" + (i + 1)});
+        // Seat ids run 1..numberOfSectors*seatsPerSector, sector by sector
+        seedTable("seats", seatsTable(), INSERT_INTO_SEATS, (long) numberOfSectors * seatsPerSector, Operation.SEED_SECTORS,
+                i -> new Object[]{i + 1, "Seat" + (i % seatsPerSector + 1), i / seatsPerSector + 1});
         log.info(numberOfSectors + " sectors seeded.");
     }
 
-    private void createSector(BigInteger sectorId, int seatsPerSector, BigInteger currentSeatId) throws BackendException {
-        try {
-            // Create sector
-            session.execute("INSERT INTO sectors (id, name) VALUES (?, ?);",
-                    sectorId.longValue(), "Sector" + sectorId.longValue());
+    public void seedMatches(int numberOfMatches) throws BackendException {
+        seedTable("matches", matchesTable(), INSERT_INTO_MATCHES, numberOfMatches, Operation.SEED_MATCHES,
+                i -> new Object[]{i + 1, "Match" + (i + 1), matchTimestamp(i)});
+        log.info(numberOfMatches + " matches seeded.");
+    }
 
-            // Seed seats for the sector
-            seedSeats(sectorId, seatsPerSector, currentSeatId);
+    private static Timestamp matchTimestamp(long matchIndex) {
+        // One match per day from 2024-01-01, 20:00
+        LocalDateTime localDateTime = LocalDateTime.of(LocalDate.of(2024, 1, 1).plusDays(matchIndex), LocalTime.of(20, 0));
+        return Timestamp.valueOf(localDateTime);
+    }
 
-        } catch (Exception e) {
-            throw new BackendException("Error seeding sectors: " + e.getMessage(), e);
+    /**
+     * Writes {@code rowCount} rows produced by {@code row} in chunks of {@code seed.chunk_size},
+     * recording progress in {@code seed_manifest} after each chunk. A table whose manifest matches
+     * the row count and checksum is skipped, a partially seeded one resumes after its last completed chunk.
+     * With {@code seed.force} the manifest is ignored and every row is written again.
+     * <p>
+     * With {@code seed.mode=sstable} the rows are written as SSTables from {@code schema} and streamed in one go,
+     * see {@link SSTableSeeder}; {@code seed.mode=sstable_files} only writes the files and leaves the manifest alone.
+     */
+    private void seedTable(String table, Create schema, String cql, long rowCount, Operation operation, LongFunction<Object[]> row) throws BackendException {
+        long checksum = seedChecksum(rowCount, row);
+        SeedManifest manifest = seedForce ? null : readSeedManifest(table);
+
+        long firstChunk = 0;
+        if (manifest != null && manifest.matches(rowCount, checksum, seedChunkSize)) {
+            if (manifest.isComplete()) {
+                log.info("Table " + table + " already seeded with " + rowCount + " rows, skipping");
+                return;
+            }
+            firstChunk = manifest.getCompletedChunks();
+            log.info("Resuming seeding of " + table + " after chunk " + firstChunk);
         }
-    }
 
-    private void seedSeats(BigInteger sectorId, int seatsPerSector, BigInteger currentSeatId) throws BackendException {
-        try {
-            long currentId = currentSeatId.intValue();
-            for (long seatNumber = 1; seatNumber <= seatsPerSector; seatNumber++) {
-                session.execute("INSERT INTO seats (id, number, sector_id) VALUES (?, ?, ?);",
-                        currentId, "Seat" + seatNumber, sectorId.longValue());
-                currentId++;
+        if (sstableSeeder != null) {
+            sstableSeeder.seed(table, schema.getQueryString(), cql, rowCount, row);
+            if (sstableSeeder.isStreamToCluster()) {
+                long chunks = (rowCount + seedChunkSize - 1) / seedChunkSize;
+                writeSeedManifest(new SeedManifest(table, rowCount, checksum, seedChunkSize, chunks, true));
             }
-        } catch (Exception e) {
-            throw new BackendException("Error seeding seats: " + e.getMessage(), e);
+            return;
+        }
+
+        BulkLoader loader = new BulkLoader(retrying, table, seedParallelism, metrics, operation);
+        long chunks = (rowCount + seedChunkSize - 1) / seedChunkSize;
+        for (long chunk = firstChunk; chunk < chunks; chunk++) {
+            long end = Math.min(rowCount, (chunk + 1) * seedChunkSize);
+            for (long i = chunk * seedChunkSize; i < end; i++) {
+                loader.submit(statements.bind(cql, row.apply(i)));
+            }
+            loader.flush();
+            writeSeedManifest(new SeedManifest(table, rowCount, checksum, seedChunkSize, chunk + 1, chunk + 1 == chunks));
+        }
+        if (chunks == 0) {
+            writeSeedManifest(new SeedManifest(table, 0, checksum, seedChunkSize, 0, true));
         }
+        loader.await();
     }
 
-    public void seedMatches(int numberOfMatches) throws BackendException {
-        int day = 1;
-        for (int i = 1; i <= numberOfMatches; i++) {
-            createMatch(i, "Match" + i, LocalDate.of(2024, 1, day), LocalTime.of(20, 0));
-            day++;
+    private static long seedChecksum(long rowCount, LongFunction<Object[]> row) {
+        CRC32 crc = new CRC32();
+        for (long i = 0; i < rowCount; i++) {
+            for (Object value : row.apply(i)) {
+                crc.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+                crc.update('|');
+            }
         }
-        log.info(numberOfMatches + " matches seeded.");
+        return crc.getValue();
     }
 
-    private void createMatch(long matchId, String name, LocalDate matchDate, LocalTime matchTime) throws BackendException {
+    private SeedManifest readSeedManifest(String table) throws BackendException {
         try {
-            // Combine LocalDate and LocalTime to create a LocalDateTime
-            LocalDateTime localDateTime = LocalDateTime.of(matchDate, matchTime);
-
-            // Convert LocalDateTime to Timestamp
-            Timestamp timestamp = Timestamp.valueOf(localDateTime);
+            Row row = execute(Operation.SEED_MANIFEST, statements.bind(SELECT_SEED_MANIFEST, table)).one();
+            if (row == null) {
+                return null;
+            }
+            return new SeedManifest(table, row.getLong("row_count"), row.getLong("checksum"), row.getInt("chunk_size"),
+                    row.getLong("completed_chunks"), row.getBool("complete"));
+        } catch (Exception e) {
+            throw new BackendException("Could not read seed manifest of " + table + ". " + e.getMessage(), e);
+        }
+    }
 
-            session.execute("INSERT INTO matches (id, name, match_datetime) VALUES (?, ?, ?);",
-                    matchId, name, timestamp);
+    private void writeSeedManifest(SeedManifest manifest) throws BackendException {
+        try {
+            execute(Operation.SEED_MANIFEST, statements.bind(UPSERT_SEED_MANIFEST, manifest.getTableName(), manifest.getRowCount(),
+                    manifest.getChecksum(), manifest.getChunkSize(), manifest.getCompletedChunks(), manifest.isComplete()));
         } catch (Exception e) {
-            throw new BackendException("Error seeding matches: " + e.getMessage(), e);
+            throw new BackendException("Could not write seed manifest of " + manifest.getTableName() + ". " + e.getMessage(), e);
         }
     }
 
-    public void createTableReservationRequests() {
-        Create create = SchemaBuilder.createTable(this.keySpace, "reservation_requests")
+    private Create seedManifestTable() {
+        return SchemaBuilder.createTable(this.keySpace, "seed_manifest")
+                .ifNotExists()
+                .addPartitionKey("table_name", DataType.varchar())
+                .addColumn("row_count", DataType.bigint())
+                .addColumn("checksum", DataType.bigint())
+                .addColumn("chunk_size", DataType.cint())
+                .addColumn("completed_chunks", DataType.bigint())
+                .addColumn("complete", DataType.cboolean())
+                .addColumn("updated_at", DataType.timestamp());
+    }
+
+    private Create reservationRequestsTable() {
+        return SchemaBuilder.createTable(this.keySpace, "reservation_requests")
                 .ifNotExists()
                 .addPartitionKey("match_id", DataType.bigint())
                 .addClusteringColumn("user_id", DataType.bigint())
                 .addColumn("seat_id", DataType.bigint())
                 .addColumn("request_time", DataType.timestamp());
-        session.execute(create);
-        log.info("Table reservation_requests created successful");
     }
 
-    public void requestSeatReservation(long matchId, long userId, long seatId) throws BackendException {
+    /**
+     * Enqueues a reservation request, unless the match counters or the seat cache already know it cannot be granted.
+     *
+     * @return {@code false} if the request was rejected locally without a round trip
+     */
+    public boolean requestSeatReservation(long matchId, long userId, long seatId) throws BackendException {
+        if (coalescer != null) {
+            try {
+                return requestSeatReservationAsync(matchId, userId, seatId).join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof BackendException
+                        ? (BackendException) e.getCause()
+                        : new BackendException("Error requesting seat: " + e.getCause().getMessage(), e);
+            }
+        }
+
+        long start = System.nanoTime();
+        if (rejectedLocally(matchId, userId, seatId, start)) {
+            return false;
+        }
+        long sent = acquireRequestSlot();
+        Throwable failure = null;
         try {
-            session.execute("INSERT INTO reservation_requests (match_id, user_id, seat_id, request_time) VALUES (?, ?, ?, dateof(now()));", matchId, userId, seatId);
+            enqueue(matchId, userId, seatId);
             log.info("[*** Seat " + seatId + " requested for user " + userId + " in match " + matchId + " ***]");
+            return true;
         }
         catch (Exception e) {
+            failure = e;
             throw new BackendException("Error requesting seat: " + e.getMessage(), e);
         }
+        finally {
+            releaseRequestSlot(sent, failure);
+        }
     }
 
-    public void processReservationRequests() throws BackendException {
+    /**
+     * Non-blocking variant of {@link #requestSeatReservation(long, long, long)} built on {@code executeAsync}.
+     * With {@code coalesce.enabled} the insert goes through the {@link ReservationCoalescer} of its match.
+     * The future completes with {@code false} if the request was rejected locally.
+     */
+    public CompletableFuture<Boolean> requestSeatReservationAsync(long matchId, long userId, long seatId) {
+        long start = System.nanoTime();
         try {
-            ResultSet reservationRequests = session.execute("SELECT * FROM reservation_requests;");
+            if (rejectedLocally(matchId, userId, seatId, start)) {
+                return CompletableFuture.completedFuture(false);
+            }
+        } catch (BackendException e) {
+            return CompletableFutures.failed(e);
+        }
+
+        // Waiting for a permit must not hold the caller's thread, which may be a driver I/O thread or a processor worker
+        return acquireRequestSlotAsync().thenCompose(sent -> enqueueAsync(matchId, userId, seatId, 0).handle((ignored, error) -> {
+            releaseRequestSlot(sent, error);
+            if (error != null) {
+                metrics.record(Operation.REQUEST_SEAT, start, Outcome.ERROR);
+                Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                throw new CompletionException(cause instanceof BackendException
+                        ? cause
+                        : new BackendException("Error requesting seat: " + cause.getMessage(),
+                        cause instanceof Exception ? (Exception) cause : new RuntimeException(cause)));
+            }
+            metrics.record(Operation.REQUEST_SEAT, start, Outcome.SUCCESS);
+            log.info("[*** Seat " + seatId + " requested for user " + userId + " in match " + matchId + " ***]");
+            return true;
+        }));
+    }
+
+    /**
+     * Writes a request to the queue. A bucketed request acknowledged too late to be sure a drain will read it
+     * (see {@link BucketedReservationQueue#landedLate(long)}) is written once more with a fresh stamp;
+     * should both copies be read, deciding the request twice is harmless.
+     */
+    private void enqueue(long matchId, long userId, long seatId) throws BackendException {
+        for (int copy = 0; ; copy++) {
+            long requestTime = System.currentTimeMillis();
+            execute(Operation.REQUEST_SEAT, enqueueStatement(matchId, userId, seatId, requestTime));
+            if (confirmEnqueued(matchId, userId, seatId, requestTime, copy)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Non-blocking variant of {@link #enqueue(long, long, long)}, through the coalescer if enabled.
+     */
+    private CompletableFuture<Void> enqueueAsync(long matchId, long userId, long seatId, int copy) {
+        long requestTime = System.currentTimeMillis();
+        Statement insert = enqueueStatement(matchId, userId, seatId, requestTime);
+        CompletableFuture<Void> written = coalescer != null
+                ? coalescer.add(bucketedQueue != null ? bucketedQueue.partitionOf(matchId, userId, requestTime) : matchId, insert)
+                : retrying.executeAsync(insert).thenApply(rs -> (Void) null);
+        return written.thenCompose(ignored -> {
+            try {
+                return confirmEnqueued(matchId, userId, seatId, requestTime, copy)
+                        ? CompletableFuture.completedFuture(null)
+                        : enqueueAsync(matchId, userId, seatId, copy + 1);
+            } catch (BackendException e) {
+                return CompletableFutures.failed(e);
+            }
+        });
+    }
+
+    /**
+     * Counts the just acknowledged {@code copy} of a request as pending if it landed in time.
+     *
+     * @return {@code false} if it has to be written again
+     * @throws BackendException if the second copy landed late as well
+     */
+    private boolean confirmEnqueued(long matchId, long userId, long seatId, long requestTime, int copy) throws BackendException {
+        if (bucketedQueue == null || !bucketedQueue.landedLate(requestTime)) {
+            if (counters != null) {
+                counters.recordRequested(matchId);
+            }
+            return true;
+        }
+        long lateMillis = System.currentTimeMillis() - requestTime;
+        if (copy > 0) {
+            throw new BackendException("Request of user " + userId + " for match " + matchId + " was acknowledged "
+                    + lateMillis + " ms after it was stamped, twice; it may not be processed");
+        }
+        log.warn("Request of user " + userId + " for match " + matchId + " was acknowledged " + lateMillis
+                + " ms after it was stamped, enqueueing it again");
+        return false;
+    }
+
+    /**
+     * Rejects a request without a round trip if its match or sector is sold out or the seat is known to be taken.
+     */
+    private boolean rejectedLocally(long matchId, long userId, long seatId, long start) throws BackendException {
+        if (counters != null && counters.rejects(matchId, seatId)) {
+            metrics.record(Operation.REQUEST_SEAT, start, Outcome.CONFLICT);
+            log.info("[*** Sector of seat " + seatId + " in match " + matchId + " is sold out, request of user " + userId + " rejected ***]");
+            return true;
+        }
+        if (seatCache.isTaken(matchId, seatId)) {
+            metrics.record(Operation.REQUEST_SEAT, start, Outcome.CONFLICT);
+            log.info("[*** Seat " + seatId + " for match " + matchId + " is already taken, request of user " + userId + " rejected ***]");
+            return true;
+        }
+        return false;
+    }
+
+    private Statement enqueueStatement(long matchId, long userId, long seatId, long requestTimeMillis) {
+        return bucketedQueue != null
+                ? bucketedQueue.enqueue(matchId, userId, seatId, requestTimeMillis)
+                : statements.bindRouted(INSERT_INTO_RESERVATION_REQUESTS, matchId, matchId, userId, seatId);
+    }
+
+    /**
+     * Waits for a permit of the {@link AdaptiveConcurrencyLimiter}, if enabled.
+     *
+     * @return the time the request may be sent, to be passed to {@link #releaseRequestSlot(long, Throwable)}
+     */
+    private long acquireRequestSlot() throws BackendException {
+        if (limiter != null) {
+            try {
+                limiter.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BackendException("Interrupted while waiting for a request slot", e);
+            }
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Non-blocking variant of {@link #acquireRequestSlot()}. Completes once a permit is free, possibly on the
+     * thread that released it.
+     */
+    private CompletableFuture<Long> acquireRequestSlotAsync() {
+        return limiter == null
+                ? CompletableFuture.completedFuture(System.nanoTime())
+                : limiter.acquireAsync().thenApply(ignored -> System.nanoTime());
+    }
+
+    private void releaseRequestSlot(long sentNanos, Throwable failure) {
+        if (limiter != null) {
+            limiter.release(System.nanoTime() - sentNanos, AdaptiveConcurrencyLimiter.signalsOverload(failure));
+        }
+    }
+
+    /**
+     * Picks a seat not known to be taken, scanning from {@code fromSeatId}; -1 if the match looks sold out.
+     */
+    public long pickFreeSeat(long matchId, long fromSeatId) throws BackendException {
+        return seatCache.pickFreeSeat(matchId, fromSeatId);
+    }
+
+    /**
+     * Requests a seat and returns its outcome, delivered in-process by the processor once decided.
+     * A request rejected by the seat cache completes with {@link ReservationOutcome#SEAT_TAKEN} right away.
+     * The future never completes if the request is processed by another JVM, see {@link #reservationResult}.
+     */
+    public CompletableFuture<ReservationOutcome> reserveSeat(long matchId, long userId, long seatId) {
+        // Register first, the processor may decide before requestSeatReservationAsync returns
+        CompletableFuture<ReservationOutcome> outcome = outcomes.register(matchId, userId, seatId);
+        requestSeatReservationAsync(matchId, userId, seatId).whenComplete((requested, error) -> {
+            if (error != null) {
+                outcomes.forget(matchId, userId, seatId);
+                outcome.completeExceptionally(error);
+            } else if (!requested) {
+                outcomes.forget(matchId, userId, seatId);
+                outcome.complete(ReservationOutcome.SEAT_TAKEN);
+            }
+        });
+        return outcome;
+    }
+
+    /**
+     * Stops the in-process notification of a request passed to {@link #reserveSeat}, for a client that no longer waits.
+     */
+    public void abandonReservation(long matchId, long userId, long seatId) {
+        outcomes.forget(matchId, userId, seatId);
+    }
+
+    /**
+     * Outcome recorded in {@code reservation_results} for this request, or {@code null} if it is not decided yet.
+     */
+    public ReservationOutcome reservationResult(long matchId, long userId, long seatId) throws BackendException {
+        try {
+            return toOutcome(execute(Operation.POLL_STATUS, statements.bindRouted(SELECT_RESERVATION_RESULT, matchId, matchId, userId)).one(), seatId);
+        } catch (Exception e) {
+            throw new BackendException("Error reading reservation result of user " + userId + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Non-blocking variant of {@link #reservationResult(long, long, long)}.
+     */
+    public CompletableFuture<ReservationOutcome> reservationResultAsync(long matchId, long userId, long seatId) {
+        long start = System.nanoTime();
+        return retrying.executeAsync(statements.bindRouted(SELECT_RESERVATION_RESULT, matchId, matchId, userId))
+                .handle((rs, error) -> {
+                    if (error != null) {
+                        metrics.record(Operation.POLL_STATUS, start, Outcome.ERROR);
+                        throw new CompletionException(new BackendException("Error reading reservation result of user " + userId + ": " + error.getMessage(),
+                                error instanceof Exception ? (Exception) error : new RuntimeException(error)));
+                    }
+                    metrics.record(Operation.POLL_STATUS, start, Outcome.SUCCESS);
+                    return toOutcome(rs.one(), seatId);
+                });
+    }
+
+    private static ReservationOutcome toOutcome(Row result, long seatId) {
+        // A result for another seat belongs to an earlier request of the same user
+        return result != null && result.getLong("seat_id") == seatId
+                ? ReservationOutcome.valueOf(result.getString("outcome"))
+                : null;
+    }
+
+    /**
+     * Loads the seat cache and, if enabled, the match counters of every match.
+     */
+    public void warmSeatCache(int numberOfMatches) throws BackendException {
+        for (long matchId = 1; matchId <= numberOfMatches; matchId++) {
+            seatCache.warm(matchId);
+            if (counters != null) {
+                try {
+                    counters.warm(matchId);
+                } catch (Exception e) {
+                    throw new BackendException("Error loading counters of match " + matchId + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        log.info("Seat cache warmed for " + numberOfMatches + " matches");
+    }
+
+    private void loadTakenSeats(long matchId, SeatAvailabilityCache.SeatBitmap bitmap) throws BackendException {
+        try {
+            Statement select = statements.bindRouted(SELECT_TAKEN_SEATS, matchId, matchId).setFetchSize(warmFetchSize);
+            for (Row row : execute(Operation.LOAD_TAKEN_SEATS, select)) {
+                bitmap.markTaken(row.getLong("seat_id"));
+            }
+        } catch (Exception e) {
+            throw new BackendException("Error loading taken seats of match " + matchId + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Processes the pending requests of a single {@code match_id} partition, paging with {@code fetchSize}.
+     * Every request read is removed from the queue, whatever its outcome, so it is handled exactly once
+     * as long as each partition is owned by one worker (see {@link ReservationProcessor}).
+     * With the bucketed layout the match's buckets are drained instead, see {@link BucketedReservationQueue}.
+     *
+     * @return number of requests processed
+     */
+    public int processReservationRequests(long matchId, int fetchSize) throws BackendException {
+        int processed = 0;
+        try {
+            if (bucketedQueue != null) {
+                return bucketedQueue.drain(matchId, fetchSize, this::handleRequest, this::requestsRemoved);
+            }
+
+            Statement select = statements.bindRouted(SELECT_RESERVATION_REQUESTS_FOR_MATCH, matchId, matchId)
+                    .setFetchSize(fetchSize);
+            ResultSet reservationRequests = execute(Operation.SELECT_REQUESTS, select);
 
             for (Row request : reservationRequests) {
-                long matchId = request.getLong("match_id");
                 long userId = request.getLong("user_id");
                 long seatId = request.getLong("seat_id");
+                ReservationOutcome outcome = decideRequest(matchId, userId, seatId, request.getTimestamp("request_time"));
+
+                // Deletes only the request that was read: a retry of the user overwrites the same row with a newer
+                // write time, and stays queued. Done before the client is told, which may retry right away.
+                execute(Operation.DELETE_REQUEST, statements.bindRouted(DELETE_FROM_RESERVATION_REQUESTS, matchId,
+                        request.getLong("written"), matchId, userId));
+                requestsRemoved(matchId, 1);
+                outcomes.complete(matchId, userId, seatId, outcome);
+                processed++;
+            }
+            return processed;
+        } catch (Exception e) {
+            throw new BackendException("Error processing reservation requests: " + e.getMessage(), e);
+        }
+    }
 
-                ResultSet userSeatCheck = session.execute("SELECT * FROM match_users_seats WHERE match_id = ? AND user_id = ?;", matchId, userId);
-                if (!userSeatCheck.isExhausted()) {
-                    log.info("[*** User " + userId + " already has a seat reserved for match " + matchId + "***]");
-                    continue;
-                }
+    private void handleRequest(long matchId, long userId, long seatId, Date requestTime) throws BackendException {
+        outcomes.complete(matchId, userId, seatId, decideRequest(matchId, userId, seatId, requestTime));
+    }
+
+    /**
+     * A request stops being pending once it is removed from the queue, not when it is decided: a request whose delete
+     * or result write failed is read and decided again.
+     */
+    private void requestsRemoved(long matchId, long requests) {
+        if (counters != null) {
+            counters.recordRemoved(matchId, requests);
+        }
+    }
+
+    /**
+     * Claims the seat and records the outcome in {@code reservation_results}; waiting clients are not notified yet.
+     */
+    private ReservationOutcome decideRequest(long matchId, long userId, long seatId, Date requestTime) throws BackendException {
+        SeatClaim claim = claimSeat(matchId, userId, seatId);
+        ReservationOutcome outcome = claim.getOutcome();
+        if (outcome != ReservationOutcome.ALREADY_HAS_SEAT) {
+            seatCache.markTaken(matchId, seatId);
+        }
+        if (counters != null && claim.isSold()) {
+            counters.recordSold(matchId, seatId);
+        }
+        execute(Operation.WRITE_RESULT, statements.bindRouted(INSERT_RESERVATION_RESULT, matchId,
+                matchId, userId, seatId, outcome.name(), requestTime, new Date()));
+        switch (outcome) {
+            case GRANTED:
+                log.info("[*** Seat " + seatId + " reserved for user " + userId + " in match " + matchId + "***]");
+                break;
+            case SEAT_TAKEN:
+                log.info("[*** Seat " + seatId + " is already taken for match " + matchId + "***]");
+                break;
+            case ALREADY_HAS_SEAT:
+                log.info("[*** User " + userId + " already has a seat reserved for match " + matchId + "***]");
+                break;
+        }
+        return outcome;
+    }
+
+    /**
+     * Streams the reservations of one match, {@code export.fetch_size} rows per page with the next page prefetched.
+     * Close the stream, or consume it fully, to release the result set.
+     */
+    public Stream<Row> streamMatchReservations(long matchId) {
+        Statement select = statements.bindRouted(SELECT_MATCH_RESERVATIONS, matchId, matchId).setFetchSize(exportFetchSize);
+        return PrefetchingIterator.stream(execute(Operation.READ_RESERVATIONS, select), exportFetchSize);
+    }
+
+    /**
+     * Streams every row of {@code match_users_seats}; memory use does not depend on the table size.
+     */
+    public Stream<Row> streamAllReservations() {
+        Statement select = statements.bind(SELECT_ALL_RESERVATIONS).setFetchSize(exportFetchSize);
+        return PrefetchingIterator.stream(execute(Operation.READ_RESERVATIONS, select), exportFetchSize);
+    }
+
+    /**
+     * Scans every user in parallel token ranges; rows carry {@code id} and {@code name} after the token column.
+     */
+    public long scanUsers(TokenRangeScanner.RowHandler handler) throws BackendException {
+        return scanner.scan("users", "id", null, "id, name", handler);
+    }
+
+    /**
+     * Scans every granted reservation in parallel token ranges; rows carry {@code match_id}, {@code user_id}
+     * and {@code seat_id} after the token column.
+     */
+    public long scanReservations(TokenRangeScanner.RowHandler handler) throws BackendException {
+        return scanner.scan("match_users_seats", "match_id", "user_id", "match_id, user_id, seat_id", handler);
+    }
+
+    /**
+     * Counts granted reservations per match with a parallel scan, keyed by match id. A retried token range does not
+     * count a reservation twice, the scanner resumes behind the last row it delivered.
+     */
+    public Map<Long, Long> countReservationsPerMatch() throws BackendException {
+        Map<Long, LongAdder> counts = new ConcurrentHashMap<>();
+        scanReservations(row -> counts.computeIfAbsent(row.getLong("match_id"), id -> new LongAdder()).increment());
+        Map<Long, Long> result = new TreeMap<>();
+        counts.forEach((matchId, count) -> result.put(matchId, count.sum()));
+        return result;
+    }
+
+    public long countMatchOccupancy(long matchId) throws BackendException {
+        try (Stream<Row> rows = streamMatchReservations(matchId)) {
+            return rows.count();
+        } catch (Exception e) {
+            throw new BackendException("Error counting occupancy of match " + matchId + ": " + e.getMessage(), e);
+        }
+    }
+
+    public long exportMatchReservations(long matchId, Path file, ReservationExporter.Format format) throws BackendException {
+        try (Stream<Row> rows = streamMatchReservations(matchId)) {
+            return export(rows, file, format);
+        } catch (Exception e) {
+            throw new BackendException("Error exporting reservations of match " + matchId + ": " + e.getMessage(), e);
+        }
+    }
+
+    public long exportAllReservations(Path file, ReservationExporter.Format format) throws BackendException {
+        try (Stream<Row> rows = streamAllReservations()) {
+            return export(rows, file, format);
+        } catch (Exception e) {
+            throw new BackendException("Error exporting reservations: " + e.getMessage(), e);
+        }
+    }
 
-                ResultSet seatTakenCheck = session.execute("SELECT * FROM match_users_seats WHERE match_id = ? AND seat_id = ?;", matchId, seatId);
-                if (seatTakenCheck.isExhausted()) {
-                    session.execute("INSERT INTO match_users_seats (match_id, user_id, seat_id) VALUES (?, ?, ?);", matchId, userId, seatId);
-                    session.execute("DELETE FROM reservation_requests WHERE match_id = ? AND user_id = ?;", matchId, userId);
+    private long export(Stream<Row> rows, Path file, ReservationExporter.Format format) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long exported = new ReservationExporter().export(rows.iterator(), channel, format);
+            log.info("Exported " + exported + " reservations to " + file);
+            return exported;
+        }
+    }
 
-                    log.info("[*** Seat " + seatId + " reserved for user " + userId + " in match " + matchId + "***]");
-                } else {
-                    log.info("[*** Seat " + seatId + " is already taken for match " + matchId + matchId + "***]");
+    /**
+     * Moves requests left in the {@code reservation_requests} table into the bucketed queue, one match partition
+     * at a time, and removes each source partition with a single delete. Does nothing with the simple layout
+     * or when the old table does not exist. Migrated requests are queued in the current bucket.
+     */
+    public void migrateReservationRequests(int numberOfMatches) throws BackendException {
+        KeyspaceMetadata keyspaceMetadata = session.getCluster().getMetadata().getKeyspace(this.keySpace);
+        if (bucketedQueue == null || keyspaceMetadata == null || keyspaceMetadata.getTable("reservation_requests") == null) {
+            return;
+        }
+        long migrated = 0;
+        try {
+            for (long matchId = 1; matchId <= numberOfMatches; matchId++) {
+                Statement select = statements.bindRouted(SELECT_RESERVATION_REQUESTS_FOR_MATCH, matchId, matchId)
+                        .setFetchSize(warmFetchSize);
+                for (Row request : session.execute(select)) {
+                    session.execute(bucketedQueue.enqueue(matchId, request.getLong("user_id"), request.getLong("seat_id"), System.currentTimeMillis()));
+                    migrated++;
                 }
+                session.execute(statements.bindRouted(DELETE_RESERVATION_REQUESTS_PARTITION, matchId, matchId));
             }
         } catch (Exception e) {
-            throw new BackendException("Error processing reservation requests: " + e.getMessage(), e);
+            throw new BackendException("Error migrating reservation requests: " + e.getMessage(), e);
         }
+        log.info("Migrated " + migrated + " reservation requests to " + BucketedReservationQueue.TABLE);
     }
 
+    /**
+     * Claims the seat in {@code match_seats} and then the user's guard row in {@code match_users_seats},
+     * both with {@code IF NOT EXISTS}. If the user already holds another seat the seat claim is released again.
+     * No plain reads are involved, and two requests can never both win the same seat.
+     * <p>
+     * A reprocessed request finds the seat already claimed by its own user, for example after the user claim
+     * timed out or the request could not be deleted. The guard is then claimed or checked as for a new claim,
+     * so a grant always has its {@code match_users_seats} row. Such a re-confirmed grant is not a new sale:
+     * {@link SeatClaim#isSold()} is only set when this call's seat claim was applied.
+     */
+    private SeatClaim claimSeat(long matchId, long userId, long seatId) {
+        contentionStats.recordAttempt();
+
+        ResultSet seatClaim = execute(Operation.CLAIM_SEAT, statements.bindRouted(INSERT_INTO_MATCH_SEATS, matchId, matchId, seatId, userId));
+        if (!seatClaim.wasApplied() && seatClaim.one().getLong("user_id") != userId) {
+            contentionStats.recordOutcome(ReservationOutcome.SEAT_TAKEN);
+            return new SeatClaim(ReservationOutcome.SEAT_TAKEN, false);
+        }
+
+        ResultSet userClaim = execute(Operation.CLAIM_USER, statements.bindRouted(INSERT_INTO_MATCH_USERS_SEATS, matchId, matchId, userId, seatId));
+        if (!userClaim.wasApplied() && userClaim.one().getLong("seat_id") != seatId) {
+            execute(Operation.RELEASE_SEAT, statements.bindRouted(RELEASE_MATCH_SEAT, matchId, matchId, seatId, userId));
+            contentionStats.recordOutcome(ReservationOutcome.ALREADY_HAS_SEAT);
+            return new SeatClaim(ReservationOutcome.ALREADY_HAS_SEAT, false);
+        }
 
+        contentionStats.recordOutcome(ReservationOutcome.GRANTED);
+        return new SeatClaim(ReservationOutcome.GRANTED, seatClaim.wasApplied());
+    }
 
-    protected void finalize() {
-		try {
-			if (session != null) {
-				session.getCluster().close();
-			}
-		} catch (Exception e) {
-			log.error("Could not close existing cluster", e);
-		}
-	}
+    /**
+     * Executes the statement and records its latency; a conditional write that was not applied counts as a conflict.
+     */
+    private ResultSet execute(Operation operation, Statement statement) {
+        long start = System.nanoTime();
+        try {
+            ResultSet rs = retrying.execute(statement);
+            metrics.record(operation, start, rs.wasApplied() ? Outcome.SUCCESS : Outcome.CONFLICT);
+            return rs;
+        } catch (RuntimeException e) {
+            metrics.record(operation, start, Outcome.ERROR);
+            throw e;
+        }
+    }
+
+    @Value
+    private static class SeatClaim {
+        ReservationOutcome outcome;
+        /** Whether this claim sold the seat, as opposed to re-confirming an earlier claim of the same user. */
+        boolean sold;
+    }
 }
@@ -0,0 +1,157 @@
+package org.cassandraproject;
+
+import lombok.extern.slf4j.Slf4j;
+import org.cassandraproject.workload.WorkloadGenerator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Launches the simulated clients according to {@code clients.mode} and {@code clients.arrival}.
+ * <ul>
+ *     <li>{@code threads} - one platform thread per client (the original behaviour)</li>
+ *     <li>{@code virtual} - one virtual thread per client; needs a JDK 21+ runtime, falls back to {@code async} otherwise</li>
+ *     <li>{@code async} - every client is a {@link CompletableFuture} pipeline over {@code executeAsync},
+ *     with at most {@code clients.max_in_flight} requests outstanding; retries run on {@code clients.async_workers}
+ *     threads</li>
+ * </ul>
+ * All modes share the single session of the given {@link CassandraService} and one {@link WorkloadGenerator}.
+ */
+@Slf4j
+public class ClientRunner {
+
+    public enum Mode {
+        THREADS, VIRTUAL, ASYNC
+    }
+
+    private final Properties properties;
+    private final CassandraService cassandraService;
+    private final Mode mode;
+    private final ArrivalProfile arrivalProfile;
+    private final double arrivalRate;
+    private final double rampUpSeconds;
+    private final int maxInFlight;
+    private final int asyncWorkers;
+    private final WorkloadGenerator workload;
+
+    public ClientRunner(Properties properties, CassandraService cassandraService) {
+        this.properties = properties;
+        this.cassandraService = cassandraService;
+        this.mode = Mode.valueOf(System.getenv().getOrDefault("CLIENTS_MODE", properties.getProperty("clients.mode", "threads")).toUpperCase(Locale.ROOT));
+        this.arrivalProfile = ArrivalProfile.valueOf(System.getenv().getOrDefault("CLIENTS_ARRIVAL", properties.getProperty("clients.arrival", "burst")).toUpperCase(Locale.ROOT));
+        this.arrivalRate = Double.parseDouble(System.getenv().getOrDefault("CLIENTS_ARRIVAL_RATE", properties.getProperty("clients.arrival_rate", "1000")));
+        this.rampUpSeconds = Double.parseDouble(System.getenv().getOrDefault("CLIENTS_RAMP_UP_SECONDS", properties.getProperty("clients.ramp_up_seconds", "10")));
+        this.maxInFlight = Integer.parseInt(System.getenv().getOrDefault("CLIENTS_MAX_IN_FLIGHT", properties.getProperty("clients.max_in_flight", "1024")));
+        this.asyncWorkers = Integer.parseInt(System.getenv().getOrDefault("CLIENTS_ASYNC_WORKERS", properties.getProperty("clients.async_workers", "4")));
+        try {
+            this.workload = WorkloadGenerator.create(properties);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load the workload: " + e.getMessage(), e);
+        }
+    }
+
+    public void run(int numberOfClients) throws InterruptedException {
+        log.info("Running " + numberOfClients + " clients in " + mode + " mode with " + arrivalProfile + " arrivals");
+        switch (mode) {
+            case THREADS:
+                runOnThreads(numberOfClients);
+                break;
+            case VIRTUAL:
+                ExecutorService executor = newVirtualThreadExecutor();
+                if (executor == null) {
+                    log.warn("Virtual threads are not available on Java " + System.getProperty("java.specification.version") + ", falling back to async mode");
+                    runAsync(numberOfClients);
+                } else {
+                    runOnExecutor(executor, numberOfClients);
+                }
+                break;
+            case ASYNC:
+                runAsync(numberOfClients);
+                break;
+        }
+    }
+
+    private void runOnThreads(int numberOfClients) throws InterruptedException {
+        long start = System.nanoTime();
+        List<Thread> threadList = new ArrayList<>();
+        for (int i = 0; i < numberOfClients; i++) {
+            pace(start, i);
+            Thread thread = new Thread(new ClientThread(properties, cassandraService, workload));
+            threadList.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threadList) {
+            thread.join();
+        }
+    }
+
+    private void runOnExecutor(ExecutorService executor, int numberOfClients) throws InterruptedException {
+        long start = System.nanoTime();
+        for (int i = 0; i < numberOfClients; i++) {
+            pace(start, i);
+            executor.execute(new ClientThread(properties, cassandraService, workload));
+        }
+        executor.shutdown();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    private void runAsync(int numberOfClients) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(asyncWorkers, r -> {
+            Thread thread = new Thread(r, "client-async-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        CompletableFuture<?>[] clients = new CompletableFuture<?>[numberOfClients];
+        long start = System.nanoTime();
+        for (int i = 0; i < numberOfClients; i++) {
+            pace(start, i);
+            inFlight.acquire();
+            clients[i] = new ClientThread(properties, cassandraService, workload, workers).runAsync()
+                    .whenComplete((ignored, error) -> {
+                        inFlight.release();
+                        if (error != null) {
+                            log.error("Client failed: " + error.getMessage());
+                        }
+                    });
+        }
+        try {
+            CompletableFuture.allOf(clients).join();
+        } catch (Exception e) {
+            // Failures were already logged per client.
+        } finally {
+            workers.shutdown();
+        }
+    }
+
+    private void pace(long startNanos, long clientIndex) {
+        long target = startNanos + arrivalProfile.offsetNanos(clientIndex, arrivalRate, rampUpSeconds);
+        long remaining;
+        while ((remaining = target - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    /**
+     * Looked up reflectively so the project still compiles and runs on Java 17.
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
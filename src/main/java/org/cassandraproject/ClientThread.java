@@ -2,52 +2,148 @@ package org.cassandraproject;
 
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.cassandraproject.exception.BackendException;
+import org.cassandraproject.workload.WorkloadGenerator;
 
 import java.util.Properties;
-import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+/**
+ * One simulated fan. It draws a match, user and preferred seat from the {@link WorkloadGenerator}, requests the
+ * seat and waits for the processor to decide it. A lost seat is retried with the next free one, up to
+ * {@code clients.max_attempts} requests. If no outcome arrives in-process within {@code clients.outcome_timeout_ms},
+ * the client reads {@code reservation_results} once and stops if the request is still undecided.
+ */
 @Slf4j
 @AllArgsConstructor
 public class ClientThread implements Runnable {
 
     private Properties properties;
-    int numUsers;
-    int numSectors;
-    int numSeatsPerSectors;
-    int numMatches;
+    private CassandraService cassandraService;
+    private WorkloadGenerator workload;
+    int maxAttempts;
+    long outcomeTimeoutMillis;
+    private Executor executor;
+    private final WorkloadGenerator.Request request = new WorkloadGenerator.Request();
 
-    public ClientThread(Properties properties) {
+    public ClientThread(Properties properties, CassandraService cassandraService, WorkloadGenerator workload) {
+        this(properties, cassandraService, workload, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param executor runs the next attempt of {@link #runAsync()}, so it never runs on the thread that delivered
+     *                 the outcome (a processor worker or a driver I/O thread)
+     */
+    public ClientThread(Properties properties, CassandraService cassandraService, WorkloadGenerator workload, Executor executor) {
         this.properties = properties;
-        this.numUsers = Integer.parseInt(System.getenv().getOrDefault("ENV_USERS",properties.getProperty("stadium.num_users")));
-        this.numSectors = Integer.parseInt(System.getenv().getOrDefault("ENV_NUM_SECTORS",properties.getProperty("stadium.num_sectors")));
-        this.numSeatsPerSectors = Integer.parseInt(System.getenv().getOrDefault("ENV_NUM_SEATS_SECTOR",properties.getProperty("stadium.num_seats_per_sector")));
-        this.numMatches = Integer.parseInt(System.getenv().getOrDefault("ENV_NUM_MATCHES",properties.getProperty("stadium.num_matches")));
+        this.cassandraService = cassandraService;
+        this.workload = workload;
+        this.maxAttempts = Integer.parseInt(System.getenv().getOrDefault("CLIENTS_MAX_ATTEMPTS", properties.getProperty("clients.max_attempts", "3")));
+        this.outcomeTimeoutMillis = Long.parseLong(System.getenv().getOrDefault("CLIENTS_OUTCOME_TIMEOUT_MS", properties.getProperty("clients.outcome_timeout_ms", "2000")));
+        this.executor = executor;
     }
     @Override
     public void run() {
         log.info(Thread.currentThread().getName());
         try {
-            log.debug("Trying to declare cassandraService in " + Thread.currentThread().getName());
-            CassandraService cassandraService = new CassandraService(properties);
-            cassandraService.useKeyspace();
-            cassandraService.prepareStatements();
+            workload.next(request);
+            long matchId = request.getMatchId();
+            long userId = request.getUserId();
+            long preferredSeat = request.getSeatId();
+
+            for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+                long seatId = cassandraService.pickFreeSeat(matchId, preferredSeat);
+                if (seatId < 0) {
+                    log.info("Match " + matchId + " is sold out, thread " + Thread.currentThread().getName() + " gives up");
+                    return;
+                }
+                ReservationOutcome outcome = awaitOutcome(matchId, userId, seatId);
+                if (outcome != ReservationOutcome.SEAT_TAKEN) {
+                    logOutcome(matchId, userId, seatId, outcome);
+                    return;
+                }
+                preferredSeat = seatId + 1;
+            }
+            log.info("User " + userId + " gives up on match " + matchId + " after " + maxAttempts + " attempts");
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // Already retried and recorded as an error; one failed client must not end the run
+            log.error("Thread " + Thread.currentThread().getName() + " failed: " + e.getMessage());
+        }
+    }
 
-            log.debug("Declared cassandraService in " + Thread.currentThread().getName());
+    /**
+     * Requests {@code seatId} and waits for its outcome.
+     *
+     * @return the outcome, or {@code null} if the request is still undecided
+     */
+    private ReservationOutcome awaitOutcome(long matchId, long userId, long seatId) throws Exception {
+        try {
+            return cassandraService.reserveSeat(matchId, userId, seatId).get(outcomeTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Not decided by a processor in this JVM (yet), ask the result table once
+            cassandraService.abandonReservation(matchId, userId, seatId);
+            return cassandraService.reservationResult(matchId, userId, seatId);
+        }
+    }
 
-            Random random = new Random();
-            long userId = random.nextInt(numUsers) + 1;
-            long seatId = random.nextInt(numSeatsPerSectors * numSectors) + 1;
-            long matchId = random.nextInt(numMatches) + 1;
+    /**
+     * Same flow as {@link #run()}, but requests are sent with {@code executeAsync}
+     * and waiting for an outcome does not hold a thread.
+     */
+    public CompletableFuture<Void> runAsync() {
+        workload.next(request);
+        return attemptAsync(request.getMatchId(), request.getUserId(), request.getSeatId(), 1);
+    }
 
-            cassandraService.requestSeatReservation(matchId, userId, seatId);
-            cassandraService.processReservationRequests();
+    private CompletableFuture<Void> attemptAsync(long matchId, long userId, long preferredSeat, int attempt) {
+        long seatId;
+        try {
+            seatId = cassandraService.pickFreeSeat(matchId, preferredSeat);
+        } catch (BackendException e) {
+            return CompletableFutures.failed(e);
+        }
+        if (seatId < 0) {
+            log.info("Match " + matchId + " is sold out, client gives up");
+            return CompletableFuture.completedFuture(null);
+        }
 
-            log.info("Thread " + Thread.currentThread().getName() + " executed completed!");
+        return CompletableFutures.completeOnTimeout(cassandraService.reserveSeat(matchId, userId, seatId),
+                        null, outcomeTimeoutMillis, TimeUnit.MILLISECONDS)
+                .thenCompose(outcome -> {
+                    if (outcome != null) {
+                        return CompletableFuture.completedFuture(outcome);
+                    }
+                    cassandraService.abandonReservation(matchId, userId, seatId);
+                    return cassandraService.reservationResultAsync(matchId, userId, seatId);
+                })
+                // pickFreeSeat may query on a seat cache miss, so the next attempt runs on the client executor
+                .thenComposeAsync(outcome -> {
+                    if (outcome != ReservationOutcome.SEAT_TAKEN) {
+                        logOutcome(matchId, userId, seatId, outcome);
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    if (attempt >= maxAttempts) {
+                        log.info("User " + userId + " gives up on match " + matchId + " after " + maxAttempts + " attempts");
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    return attemptAsync(matchId, userId, seatId + 1, attempt + 1);
+                }, executor);
+    }
 
-        } catch (Exception e) {
-            log.error("Error occurred");
-            e.printStackTrace();
-            throw new RuntimeException(e);
+    private static void logOutcome(long matchId, long userId, long seatId, ReservationOutcome outcome) {
+        if (outcome == null) {
+            log.info("Request of user " + userId + " for seat " + seatId + " in match " + matchId + " is still pending, client stops waiting");
+        } else if (outcome == ReservationOutcome.GRANTED) {
+            log.info("User " + userId + " holds seat " + seatId + " in match " + matchId);
+        } else {
+            log.info("User " + userId + " already holds a seat in match " + matchId);
         }
     }
 }
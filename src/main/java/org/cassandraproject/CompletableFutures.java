@@ -0,0 +1,42 @@
+package org.cassandraproject;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Java 8 stand-ins for {@code CompletableFuture.failedFuture} and {@code completeOnTimeout}.
+ * The code is compiled for Java 8 so the benchmarks can run next to the embedded Cassandra 3.11, see build.gradle.
+ */
+final class CompletableFutures {
+
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "future-timeouts");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private CompletableFutures() {
+    }
+
+    static <T> CompletableFuture<T> failed(Throwable error) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(error);
+        return future;
+    }
+
+    /**
+     * Completes {@code future} with {@code value} unless it completes within {@code timeout}.
+     *
+     * @return {@code future}
+     */
+    static <T> CompletableFuture<T> completeOnTimeout(CompletableFuture<T> future, T value, long timeout, TimeUnit unit) {
+        if (!future.isDone()) {
+            ScheduledFuture<?> timer = TIMER.schedule(() -> future.complete(value), timeout, unit);
+            future.whenComplete((result, error) -> timer.cancel(false));
+        }
+        return future;
+    }
+}
@@ -0,0 +1,142 @@
+package org.cassandraproject;
+
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.HostDistance;
+import com.datastax.driver.core.PoolingOptions;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.policies.DCAwareRoundRobinPolicy;
+import com.datastax.driver.core.policies.Policies;
+import com.datastax.driver.core.policies.TokenAwarePolicy;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.cassandraproject.exception.BackendException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Process-wide owner of the single {@link Cluster}/{@link Session} pair.
+ * Every {@link CassandraService} and {@link ClientThread} borrows the session from here,
+ * so the handshake happens once and the pool is closed exactly once in {@link #close()}.
+ */
+@Slf4j
+public class ConnectionManager implements AutoCloseable {
+
+    private final List<String> addresses = new ArrayList<>();
+    private Integer port;
+    @Getter
+    private String keySpace;
+    private String passwordDB;
+    private String usernameDB;
+
+    private int coreConnections;
+    private int maxConnections;
+    private int maxRequestsPerConnection;
+    private long speculativeDelayMillis;
+    private int speculativeMaxExecutions;
+
+    private Cluster cluster;
+    @Getter
+    private Session session;
+
+    public ConnectionManager(Properties properties) throws BackendException {
+        log.debug("Initializing variables in ConnectionManager in " + Thread.currentThread().getName());
+        initVariables(properties);
+
+        PoolingOptions poolingOptions = new PoolingOptions()
+                .setCoreConnectionsPerHost(HostDistance.LOCAL, this.coreConnections)
+                .setMaxConnectionsPerHost(HostDistance.LOCAL, this.maxConnections)
+                .setMaxRequestsPerConnection(HostDistance.LOCAL, this.maxRequestsPerConnection);
+
+        try {
+            this.cluster = Cluster.builder()
+                    .addContactPoints(this.addresses.toArray(new String[0]))
+                    .withPort(this.port)
+                    .withCredentials(this.usernameDB, this.passwordDB)
+                    .withLoadBalancingPolicy(new ReplicaRoutingPolicy(new TokenAwarePolicy(DCAwareRoundRobinPolicy.builder().build())))
+                    .withPoolingOptions(poolingOptions)
+                    .withSpeculativeExecutionPolicy(this.speculativeDelayMillis > 0 && this.speculativeMaxExecutions > 0
+                            ? new ReadSpeculativeExecutionPolicy(this.speculativeDelayMillis, this.speculativeMaxExecutions)
+                            : Policies.defaultSpeculativeExecutionPolicy())
+                    .build();
+
+            log.debug("Trying to connect to Cassandra cluster at " + this.addresses);
+            this.session = this.cluster.connect();
+            log.info("Connected to cluster " + this.cluster.getMetadata().getClusterName());
+        } catch (Exception e) {
+            close();
+            throw new BackendException("Failed connecting to cluster. " + e.getMessage(), e);
+        }
+    }
+
+    private void initVariables(Properties properties) {
+        String addressOne = System.getenv().getOrDefault("CASSANDRA_SERVER_ADDRESS_ONE", properties.getProperty("server.address_one"));
+        String addressTwo = System.getenv().getOrDefault("CASSANDRA_SERVER_ADDRESS_TWO", properties.getProperty("server.address_two"));
+        String addressThree = System.getenv().getOrDefault("CASSANDRA_SERVER_ADDRESS_THREE", properties.getProperty("server.address_three"));
+
+        this.port = Integer.parseInt(System.getenv().getOrDefault("CASSANDRA_SERVER_PORT", properties.getProperty("server.port")));
+        this.keySpace = System.getenv().getOrDefault("CASSANDRA_KEYSPACE", properties.getProperty("db.keyspace"));
+        this.usernameDB = System.getenv().getOrDefault("CASSANDRA_USER", properties.getProperty("db.username"));
+        this.passwordDB = System.getenv().getOrDefault("CASSANDRA_PASSWORD", properties.getProperty("db.password"));
+
+        this.coreConnections = Integer.parseInt(System.getenv().getOrDefault("CASSANDRA_POOL_CORE_CONNECTIONS", properties.getProperty("server.pool.core_connections", "1")));
+        this.maxConnections = Integer.parseInt(System.getenv().getOrDefault("CASSANDRA_POOL_MAX_CONNECTIONS", properties.getProperty("server.pool.max_connections", "2")));
+        this.maxRequestsPerConnection = Integer.parseInt(System.getenv().getOrDefault("CASSANDRA_POOL_MAX_REQUESTS_PER_CONNECTION", properties.getProperty("server.pool.max_requests_per_connection", "1024")));
+        this.speculativeDelayMillis = Long.parseLong(System.getenv().getOrDefault("CASSANDRA_SPECULATIVE_DELAY_MS", properties.getProperty("server.speculative.delay_ms", "100")));
+        this.speculativeMaxExecutions = Integer.parseInt(System.getenv().getOrDefault("CASSANDRA_SPECULATIVE_MAX_EXECUTIONS", properties.getProperty("server.speculative.max_executions", "2")));
+
+        if(addressOne == null){
+            System.out.println("ERROR INITIALIZING VARIABLE address");
+            log.error("ERROR INITIALIZING VARIABLES address one");
+            System.exit(1);
+        }
+        if(addressTwo == null){
+            System.out.println("ERROR INITIALIZING VARIABLE address");
+            log.error("ERROR INITIALIZING VARIABLES address two");
+            System.exit(1);
+        }
+        if(addressThree == null){
+            System.out.println("ERROR INITIALIZING VARIABLE address");
+            log.error("ERROR INITIALIZING VARIABLES address three");
+            System.exit(1);
+        }
+
+        this.addresses.add(addressOne);
+        this.addresses.add(addressTwo);
+        this.addresses.add(addressThree);
+
+        if(this.port == null){
+            System.out.println("ERROR INITIALIZING VARIABLE port");
+            log.error("ERROR INITIALIZING VARIABLES port");
+            System.exit(1);
+        }
+        if(this.keySpace == null){
+            System.out.println("ERROR INITIALIZING VARIABLE keySpace");
+            log.error("ERROR INITIALIZING VARIABLES keySpace");
+            System.exit(1);
+        }
+        if(this.usernameDB == null){
+            System.out.println("ERROR INITIALIZING VARIABLE usernameDB");
+            log.error("ERROR INITIALIZING VARIABLES usernameDB");
+            System.exit(1);
+        }
+        if(this.passwordDB == null){
+            System.out.println("ERROR INITIALIZING VARIABLE passwordDB");
+            log.error("ERROR INITIALIZING VARIABLES passwordDB");
+            System.exit(1);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (this.cluster != null) {
+                this.cluster.close();
+                log.debug("Cluster closed");
+            }
+        } catch (Exception e) {
+            log.error("Could not close existing cluster", e);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package org.cassandraproject;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for the lightweight transactions used to claim seats.
+ * A "lost" attempt is a conditional write that came back with {@code [applied] = false}.
+ */
+public class ContentionStats {
+
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder granted = new LongAdder();
+    private final LongAdder seatClaimsLost = new LongAdder();
+    private final LongAdder userClaimsLost = new LongAdder();
+
+    void recordAttempt() {
+        attempts.increment();
+    }
+
+    void recordOutcome(ReservationOutcome outcome) {
+        switch (outcome) {
+            case GRANTED:
+                granted.increment();
+                break;
+            case SEAT_TAKEN:
+                seatClaimsLost.increment();
+                break;
+            case ALREADY_HAS_SEAT:
+                userClaimsLost.increment();
+                break;
+        }
+    }
+
+    public long getAttempts() {
+        return attempts.sum();
+    }
+
+    public long getGranted() {
+        return granted.sum();
+    }
+
+    public long getSeatClaimsLost() {
+        return seatClaimsLost.sum();
+    }
+
+    public long getUserClaimsLost() {
+        return userClaimsLost.sum();
+    }
+
+    @Override
+    public String toString() {
+        long total = getAttempts();
+        long lost = getSeatClaimsLost() + getUserClaimsLost();
+        return String.format("LWT claims: %d attempted, %d granted, %d lost on seat, %d lost on user guard (%.1f%% contention)",
+                total, getGranted(), getSeatClaimsLost(), getUserClaimsLost(), total == 0 ? 0.0 : lost * 100.0 / total);
+    }
+}
@@ -5,10 +5,11 @@ import org.cassandraproject.exception.BackendException;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.List;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.Locale;
 import java.util.Properties;
-import java.util.Random;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 public class Main {
@@ -17,7 +18,15 @@ public class Main {
 
         Properties properties = loadProperties();
 
-        CassandraService cassandraService = new CassandraService(properties);
+        ConnectionManager connectionManager;
+        try {
+            connectionManager = new ConnectionManager(properties);
+        } catch (BackendException e) {
+            log.error("Error occurred while connecting to the database");
+            e.printStackTrace();
+            throw new RuntimeException(e);
+        }
+        CassandraService cassandraService = new CassandraService(properties, connectionManager);
 
         int numberOfClients = Integer.parseInt(System.getenv().getOrDefault("CASSANDRA_NUMBER_OF_CLIENTS", properties.getProperty("clientsNumber")));
 
@@ -27,10 +36,13 @@ public class Main {
         int numMatches = Integer.parseInt(System.getenv().getOrDefault("ENV_NUM_MATCHES",properties.getProperty("stadium.num_matches")));
 
 
+        long schemaMillis;
         try {
+            long schemaStart = System.nanoTime();
             cassandraService.createKeySpace();
             cassandraService.useKeyspace();
             cassandraService.initTables();
+            schemaMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - schemaStart);
             // Prepare statements after creating tables
             cassandraService.prepareStatements();
 
@@ -38,27 +50,49 @@ public class Main {
             cassandraService.seedUsers(numUsers);
             cassandraService.seedSectors(numSectors, numSeatsPerSectors);
             cassandraService.seedMatches(numMatches);
+            cassandraService.warmSeatCache(numMatches);
+            cassandraService.migrateReservationRequests(numMatches);
 
         } catch (BackendException e) {
             log.error("Error occurred while initializing tables in the database");
             e.printStackTrace();
+            connectionManager.close();
             throw new RuntimeException(e);
         }
 
-        List<Thread> threadList= new ArrayList<>();
-        for(int i = 0; i< numberOfClients; i++){
-            threadList.add(new Thread(new ClientThread(properties)));
-            threadList.get(i).start();
-//            Thread.sleep(new Random().nextInt(1000-100)+100);
+        ReservationProcessor reservationProcessor = new ReservationProcessor(properties, cassandraService, numMatches);
+        reservationProcessor.start();
+
+        // Cold start cost of a container restart: JVM start, connecting, schema and seeding
+        long timeToFirstRequestMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        log.info("Ready for the first request " + timeToFirstRequestMillis + " ms after start (schema " + schemaMillis + " ms)");
+        cassandraService.getMetrics().registerCounter("startup_schema_ms", () -> schemaMillis);
+        cassandraService.getMetrics().registerCounter("time_to_first_request_ms", () -> timeToFirstRequestMillis);
+
+        new ClientRunner(properties, cassandraService).run(numberOfClients);
+
+        cassandraService.close();
+        reservationProcessor.close();
+        cassandraService.flushCounters();
+        try {
+            cassandraService.countReservationsPerMatch().forEach((matchId, count) ->
+                    log.info("Match " + matchId + ": " + count + " seats reserved"));
+        } catch (BackendException e) {
+            log.error("Error occurred while counting reservations: " + e.getMessage());
         }
-        for (int i = 0; i < numberOfClients; i++) {
+        cassandraService.getMetrics().report(Paths.get(System.getenv().getOrDefault("REPORT_DIR", properties.getProperty("report.dir", "reports"))));
+
+        String exportFile = System.getenv().getOrDefault("EXPORT_FILE", properties.getProperty("export.file", ""));
+        if (!exportFile.isEmpty()) {
             try {
-                threadList.get(i).join();
-            } catch (InterruptedException e) {
-                e.printStackTrace();
+                ReservationExporter.Format format = ReservationExporter.Format.valueOf(
+                        System.getenv().getOrDefault("EXPORT_FORMAT", properties.getProperty("export.format", "csv")).toUpperCase(Locale.ROOT));
+                cassandraService.exportAllReservations(Paths.get(exportFile), format);
+            } catch (BackendException e) {
+                log.error("Error occurred while exporting reservations: " + e.getMessage());
             }
         }
-
+        connectionManager.close();
         log.info("Program executed successfully");
         System.exit(0);
     }
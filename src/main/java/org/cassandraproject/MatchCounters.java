@@ -0,0 +1,251 @@
+package org.cassandraproject;
+
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.schemabuilder.Create;
+import com.datastax.driver.core.schemabuilder.SchemaBuilder;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.cassandraproject.metrics.Operation;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+/**
+ * Seats sold per sector (the remaining seats follow from the sector size) and pending requests per match, kept in
+ * the {@code match_counters} counter table and in an in-JVM snapshot. Requests for a sold-out match or sector
+ * can then be rejected before they are queued.
+ * <p>
+ * A request is pending from its write until it is removed from the queue, not until it is decided, so a request
+ * that is read and decided again is not subtracted twice. Pending requests are counted on the match's
+ * {@code sector_id = 0} row, which belongs to no sector.
+ * <p>
+ * Changes are added to the snapshot right away and collected as deltas, which {@link #refresh()} writes as one
+ * counter update per sector every {@code refreshMillis}. It then reloads the snapshot of every match seen so far,
+ * which also picks up what other processes have sold. Counter updates are not idempotent, so a timed out update
+ * is dropped rather than retried. Counters can therefore only fall behind, and a request is only rejected once
+ * they reach the capacity. The seat claim stays authoritative.
+ */
+@Slf4j
+public class MatchCounters implements AutoCloseable {
+
+    private static final String UPDATE = "UPDATE match_counters SET seats_sold = seats_sold + ?, pending = pending + ? WHERE match_id = ? AND sector_id = ?;";
+    private static final String SELECT = "SELECT sector_id, seats_sold, pending FROM match_counters WHERE match_id = ?;";
+
+    private final String keySpace;
+    private final StatementRegistry statements;
+    private final BiFunction<Operation, Statement, ResultSet> executor;
+    private final int numSectors;
+    private final int seatsPerSector;
+    private final Map<Long, MatchSnapshot> snapshots = new ConcurrentHashMap<>();
+    private final Map<SectorKey, Delta> deltas = new ConcurrentHashMap<>();
+    private final LongAdder rejected = new LongAdder();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "match-counters");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public MatchCounters(String keySpace, StatementRegistry statements, BiFunction<Operation, Statement, ResultSet> executor,
+                         int numSectors, int seatsPerSector, long refreshMillis) {
+        this.keySpace = keySpace;
+        this.statements = statements;
+        this.executor = executor;
+        this.numSectors = numSectors;
+        this.seatsPerSector = seatsPerSector;
+        scheduler.scheduleWithFixedDelay(this::refreshQuietly, refreshMillis, refreshMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public Create table() {
+        return SchemaBuilder.createTable(this.keySpace, "match_counters")
+                .ifNotExists()
+                .addPartitionKey("match_id", DataType.bigint())
+                .addClusteringColumn("sector_id", DataType.bigint())
+                .addColumn("seats_sold", DataType.counter())
+                .addColumn("pending", DataType.counter());
+    }
+
+    public void prepareStatements() {
+        statements.prepare(UPDATE);
+        statements.prepare(SELECT);
+    }
+
+    /**
+     * Whether {@code seatId} cannot be granted because its match or sector is sold out. Counts the rejection if so.
+     * A match not seen before is never rejected; it is loaded with the next refresh.
+     */
+    public boolean rejects(long matchId, long seatId) {
+        MatchSnapshot snapshot = snapshot(matchId);
+        int sector = sectorIndex(seatId);
+        boolean soldOut = snapshot.soldTotal.get() >= (long) numSectors * seatsPerSector
+                || (sector >= 0 && snapshot.sold.get(sector) >= seatsPerSector);
+        if (soldOut) {
+            rejected.increment();
+        }
+        return soldOut;
+    }
+
+    public void recordRequested(long matchId) {
+        snapshot(matchId).pending.incrementAndGet();
+        delta(matchId, 0).pending.increment();
+    }
+
+    /**
+     * @param requests how many requests were removed from the queue of {@code matchId}
+     */
+    public void recordRemoved(long matchId, long requests) {
+        snapshot(matchId).pending.addAndGet(-requests);
+        delta(matchId, 0).pending.add(-requests);
+    }
+
+    /**
+     * Counts a seat sold by a claim; a grant that re-confirms an earlier claim is not a new sale.
+     */
+    public void recordSold(long matchId, long seatId) {
+        int sector = sectorIndex(seatId);
+        if (sector < 0) {
+            return;
+        }
+        MatchSnapshot snapshot = snapshot(matchId);
+        delta(matchId, sector + 1L).sold.increment();
+        snapshot.soldTotal.incrementAndGet();
+        if (snapshot.sold.incrementAndGet(sector) == seatsPerSector) {
+            log.info("Sector " + (sector + 1) + " of match " + matchId + " is sold out");
+        }
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * Requests written but not yet removed from the queue. A request that is written again after its first copy
+     * landed late can make a match go below zero, which is counted as zero.
+     */
+    public long getPendingTotal() {
+        long total = 0;
+        for (MatchSnapshot snapshot : snapshots.values()) {
+            total += Math.max(snapshot.pending.get(), 0);
+        }
+        return total;
+    }
+
+    /**
+     * Loads the snapshot of {@code matchId} now instead of with the next refresh.
+     */
+    public void warm(long matchId) {
+        snapshots.put(matchId, load(matchId));
+    }
+
+    /**
+     * Writes the collected deltas, then reloads the snapshot of every known match.
+     */
+    public void refresh() {
+        flush();
+        for (Long matchId : snapshots.keySet()) {
+            snapshots.put(matchId, load(matchId));
+        }
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.warn("Refreshing match counters failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the collected deltas, one counter update per sector that changed.
+     */
+    public void flush() {
+        for (Map.Entry<SectorKey, Delta> entry : deltas.entrySet()) {
+            SectorKey key = entry.getKey();
+            Delta delta = entry.getValue();
+            long sold = delta.sold.sumThenReset();
+            long pending = delta.pending.sumThenReset();
+            if (sold == 0 && pending == 0) {
+                continue;
+            }
+            try {
+                executor.apply(Operation.UPDATE_COUNTERS,
+                        statements.bindRouted(UPDATE, key.getMatchId(), sold, pending, key.getMatchId(), key.getSectorId()));
+            } catch (RuntimeException e) {
+                if (RetryingExecutor.isRetryable(e, false)) {
+                    // Rejected before it was applied, keep the delta for the next flush
+                    delta.sold.add(sold);
+                    delta.pending.add(pending);
+                } else {
+                    log.warn("Dropped counter update of match " + key.getMatchId() + " sector " + key.getSectorId() + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private MatchSnapshot load(long matchId) {
+        MatchSnapshot snapshot = new MatchSnapshot(numSectors);
+        for (Row row : executor.apply(Operation.READ_COUNTERS, statements.bindRouted(SELECT, matchId, matchId))) {
+            int sector = (int) (row.getLong("sector_id") - 1);
+            if (sector >= 0 && sector < numSectors) {
+                snapshot.sold.set(sector, row.getLong("seats_sold"));
+                snapshot.soldTotal.addAndGet(row.getLong("seats_sold"));
+            }
+            snapshot.pending.addAndGet(row.getLong("pending"));
+        }
+        return snapshot;
+    }
+
+    private MatchSnapshot snapshot(long matchId) {
+        return snapshots.computeIfAbsent(matchId, id -> new MatchSnapshot(numSectors));
+    }
+
+    private Delta delta(long matchId, long sectorId) {
+        return deltas.computeIfAbsent(new SectorKey(matchId, sectorId), key -> new Delta());
+    }
+
+    /**
+     * Seat ids run 1..numSectors*seatsPerSector, sector by sector; -1 for a seat outside the stadium.
+     */
+    private int sectorIndex(long seatId) {
+        long sector = (seatId - 1) / seatsPerSector;
+        return seatId < 1 || sector >= numSectors ? -1 : (int) sector;
+    }
+
+    /**
+     * Stops the refresh schedule; call {@link #flush()} afterwards to write what is still collected.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+    }
+
+    @Value
+    private static class SectorKey {
+        long matchId;
+        long sectorId;
+    }
+
+    private static final class Delta {
+        private final LongAdder sold = new LongAdder();
+        private final LongAdder pending = new LongAdder();
+    }
+
+    private static final class MatchSnapshot {
+        private final AtomicLongArray sold;
+        private final AtomicLong soldTotal = new AtomicLong();
+        private final AtomicLong pending = new AtomicLong();
+
+        MatchSnapshot(int numSectors) {
+            this.sold = new AtomicLongArray(numSectors);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.cassandraproject;
+
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Row;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Iterates a paged {@link ResultSet} and asks for the next page in the background
+ * once fewer than {@code prefetchThreshold} rows of the current page are left.
+ * At most two pages are held in memory, whatever the size of the result.
+ */
+public class PrefetchingIterator implements Iterator<Row> {
+
+    private final ResultSet resultSet;
+    private final int prefetchThreshold;
+
+    public PrefetchingIterator(ResultSet resultSet, int prefetchThreshold) {
+        this.resultSet = resultSet;
+        this.prefetchThreshold = prefetchThreshold;
+    }
+
+    public static Stream<Row> stream(ResultSet resultSet, int fetchSize) {
+        Iterator<Row> iterator = new PrefetchingIterator(resultSet, Math.max(1, fetchSize / 2));
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !resultSet.isExhausted();
+    }
+
+    @Override
+    public Row next() {
+        if (resultSet.getAvailableWithoutFetching() < prefetchThreshold && !resultSet.isFullyFetched()) {
+            // Returns the in-flight future if a fetch is already running
+            resultSet.fetchMoreResults();
+        }
+        Row row = resultSet.one();
+        if (row == null) {
+            throw new NoSuchElementException();
+        }
+        return row;
+    }
+}
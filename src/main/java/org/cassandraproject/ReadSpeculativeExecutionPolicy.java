@@ -0,0 +1,57 @@
+package org.cassandraproject;
+
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.RegularStatement;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.policies.ConstantSpeculativeExecutionPolicy;
+import com.datastax.driver.core.policies.SpeculativeExecutionPolicy;
+
+import java.util.Locale;
+
+/**
+ * Sends up to {@code maxSpeculativeExecutions} extra copies of a slow read, {@code delayMillis} apart.
+ * The driver only speculates on idempotent statements; this policy narrows that further to {@code SELECT}s,
+ * so writes never put twice the load on a cluster that is already slow.
+ */
+public class ReadSpeculativeExecutionPolicy implements SpeculativeExecutionPolicy {
+
+    private static final SpeculativeExecutionPlan NO_SPECULATION = lastQueried -> -1;
+
+    private final SpeculativeExecutionPolicy readPolicy;
+
+    public ReadSpeculativeExecutionPolicy(long delayMillis, int maxSpeculativeExecutions) {
+        this.readPolicy = new ConstantSpeculativeExecutionPolicy(delayMillis, maxSpeculativeExecutions);
+    }
+
+    @Override
+    public void init(Cluster cluster) {
+        readPolicy.init(cluster);
+    }
+
+    @Override
+    public SpeculativeExecutionPlan newPlan(String loggedKeyspace, Statement statement) {
+        return isRead(statement) ? readPolicy.newPlan(loggedKeyspace, statement) : NO_SPECULATION;
+    }
+
+    private static boolean isRead(Statement statement) {
+        if (statement instanceof RoutedStatement) {
+            statement = ((RoutedStatement) statement).getStatement();
+        }
+        String cql;
+        if (statement instanceof BoundStatement) {
+            cql = ((BoundStatement) statement).preparedStatement().getQueryString();
+        } else if (statement instanceof RegularStatement) {
+            cql = ((RegularStatement) statement).getQueryString();
+        } else {
+            return false;
+        }
+        return cql.trim().toUpperCase(Locale.ROOT).startsWith("SELECT");
+    }
+
+    @Override
+    public void close() {
+        readPolicy.close();
+    }
+}
@@ -0,0 +1,94 @@
+package org.cassandraproject;
+
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.HostDistance;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.policies.ChainableLoadBalancingPolicy;
+import com.datastax.driver.core.policies.LoadBalancingPolicy;
+import com.google.common.collect.AbstractIterator;
+
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * Tries the replicas carried by a {@link RoutedStatement} first, then falls back to the child policy's plan.
+ * Every other statement is routed by the child policy alone.
+ */
+public class ReplicaRoutingPolicy implements ChainableLoadBalancingPolicy {
+
+    private final LoadBalancingPolicy childPolicy;
+
+    public ReplicaRoutingPolicy(LoadBalancingPolicy childPolicy) {
+        this.childPolicy = childPolicy;
+    }
+
+    @Override
+    public LoadBalancingPolicy getChildPolicy() {
+        return childPolicy;
+    }
+
+    @Override
+    public void init(Cluster cluster, Collection<Host> hosts) {
+        childPolicy.init(cluster, hosts);
+    }
+
+    @Override
+    public HostDistance distance(Host host) {
+        return childPolicy.distance(host);
+    }
+
+    @Override
+    public Iterator<Host> newQueryPlan(String loggedKeyspace, Statement statement) {
+        if (!(statement instanceof RoutedStatement)) {
+            return childPolicy.newQueryPlan(loggedKeyspace, statement);
+        }
+        Collection<Host> replicas = ((RoutedStatement) statement).getReplicas();
+        Iterator<Host> replicaPlan = replicas.iterator();
+        Iterator<Host> childPlan = childPolicy.newQueryPlan(loggedKeyspace, statement);
+
+        return new AbstractIterator<Host>() {
+            @Override
+            protected Host computeNext() {
+                while (replicaPlan.hasNext()) {
+                    Host host = replicaPlan.next();
+                    if (host.isUp() && childPolicy.distance(host) == HostDistance.LOCAL) {
+                        return host;
+                    }
+                }
+                while (childPlan.hasNext()) {
+                    Host host = childPlan.next();
+                    if (!replicas.contains(host)) {
+                        return host;
+                    }
+                }
+                return endOfData();
+            }
+        };
+    }
+
+    @Override
+    public void onAdd(Host host) {
+        childPolicy.onAdd(host);
+    }
+
+    @Override
+    public void onUp(Host host) {
+        childPolicy.onUp(host);
+    }
+
+    @Override
+    public void onDown(Host host) {
+        childPolicy.onDown(host);
+    }
+
+    @Override
+    public void onRemove(Host host) {
+        childPolicy.onRemove(host);
+    }
+
+    @Override
+    public void close() {
+        childPolicy.close();
+    }
+}
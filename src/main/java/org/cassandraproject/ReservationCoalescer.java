@@ -0,0 +1,178 @@
+package org.cassandraproject;
+
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.Statement;
+import lombok.extern.slf4j.Slf4j;
+import org.cassandraproject.exception.BackendException;
+import org.cassandraproject.metrics.LoadTestMetrics;
+import org.cassandraproject.metrics.Operation;
+import org.cassandraproject.metrics.Outcome;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Buffers writes per partition and sends each buffer as one single-partition UNLOGGED batch.
+ * A buffer is flushed {@code windowMicros} after its first write or as soon as it holds {@code maxRows} rows,
+ * whichever comes first. Every caller gets a future that completes once its batch is acknowledged.
+ * A buffer is removed once it is drained with no flush pending, so idle partitions hold no memory.
+ */
+@Slf4j
+public class ReservationCoalescer implements AutoCloseable {
+
+    private final RetryingExecutor executor;
+    private final LoadTestMetrics metrics;
+    private final long windowMicros;
+    private final int maxRows;
+    private final ConcurrentMap<Object, Buffer> buffers = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "reservation-coalescer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ReservationCoalescer(RetryingExecutor executor, LoadTestMetrics metrics, long windowMicros, int maxRows) {
+        this.executor = executor;
+        this.metrics = metrics;
+        this.windowMicros = windowMicros;
+        this.maxRows = maxRows;
+    }
+
+    /**
+     * Queues {@code statement} behind the other writes to the same {@code partition}.
+     */
+    public CompletableFuture<Void> add(Object partition, Statement statement) {
+        CompletableFuture<Void> written = new CompletableFuture<>();
+        while (true) {
+            Buffer buffer = buffers.computeIfAbsent(partition, Buffer::new);
+            List<Pending> full = null;
+            boolean schedule = false;
+            synchronized (buffer) {
+                if (buffer.removed) {
+                    // Drained and dropped from the map after we looked it up, take the new one
+                    continue;
+                }
+                buffer.pending.add(new Pending(statement, written));
+                if (buffer.pending.size() >= maxRows) {
+                    full = buffer.drain();
+                    removeIfIdle(buffer);
+                } else if (!buffer.scheduled) {
+                    buffer.scheduled = true;
+                    schedule = true;
+                }
+            }
+            if (full != null) {
+                send(full);
+            } else if (schedule) {
+                try {
+                    flusher.schedule(() -> flush(buffer), windowMicros, TimeUnit.MICROSECONDS);
+                } catch (RejectedExecutionException e) {
+                    // Already closed, nothing will flush later
+                    flush(buffer);
+                }
+            }
+            return written;
+        }
+    }
+
+    private void flush(Buffer buffer) {
+        List<Pending> batch;
+        synchronized (buffer) {
+            buffer.scheduled = false;
+            batch = buffer.drain();
+            removeIfIdle(buffer);
+        }
+        send(batch);
+    }
+
+    /**
+     * Drops a drained buffer without a pending flush from the map, so every partition ever written does not keep
+     * one. Must hold the buffer's lock; writers that still hold the buffer see {@code removed} and look up a new one.
+     */
+    private void removeIfIdle(Buffer buffer) {
+        if (buffer.pending.isEmpty() && !buffer.scheduled) {
+            buffer.removed = true;
+            buffers.remove(buffer.partition, buffer);
+        }
+    }
+
+    private void send(List<Pending> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        BatchStatement statement = new BatchStatement(BatchStatement.Type.UNLOGGED);
+        for (Pending pending : batch) {
+            statement.add(pending.statement);
+        }
+
+        long start = System.nanoTime();
+        executor.executeAsync(statement).whenComplete((result, t) -> {
+            if (t == null) {
+                metrics.record(Operation.FLUSH_BATCH, start, Outcome.SUCCESS);
+                for (Pending pending : batch) {
+                    pending.written.complete(null);
+                }
+                return;
+            }
+            metrics.record(Operation.FLUSH_BATCH, start, Outcome.ERROR);
+            BackendException error = new BackendException("Error writing batch of " + batch.size() + " requests: " + t.getMessage(),
+                    t instanceof Exception ? (Exception) t : new RuntimeException(t));
+            for (Pending pending : batch) {
+                pending.written.completeExceptionally(error);
+            }
+        });
+        log.debug("Flushed batch of " + batch.size() + " requests");
+    }
+
+    /**
+     * @return the number of partitions that currently hold a buffer
+     */
+    public int size() {
+        return buffers.size();
+    }
+
+    /**
+     * Sends whatever is still buffered and stops the flush timer.
+     */
+    @Override
+    public void close() {
+        flusher.shutdownNow();
+        for (Buffer buffer : buffers.values()) {
+            flush(buffer);
+        }
+    }
+
+    private static final class Buffer {
+        private final Object partition;
+        private List<Pending> pending = new ArrayList<>();
+        private boolean scheduled;
+        private boolean removed;
+
+        private Buffer(Object partition) {
+            this.partition = partition;
+        }
+
+        private List<Pending> drain() {
+            List<Pending> drained = pending;
+            pending = new ArrayList<>();
+            return drained;
+        }
+    }
+
+    private static final class Pending {
+        private final Statement statement;
+        private final CompletableFuture<Void> written;
+
+        private Pending(Statement statement, CompletableFuture<Void> written) {
+            this.statement = statement;
+            this.written = written;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.cassandraproject;
+
+import com.datastax.driver.core.Row;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+/**
+ * Writes {@code (match_id, user_id, seat_id)} rows straight to a {@link FileChannel} through one reusable buffer.
+ */
+public class ReservationExporter {
+
+    public enum Format {
+        /** {@code match_id,user_id,seat_id} lines with a header. */
+        CSV,
+        /** Three big-endian longs (24 bytes) per row, no header. */
+        BINARY
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte[] CSV_HEADER = "match_id,user_id,seat_id\n".getBytes(StandardCharsets.US_ASCII);
+    // Longest possible CSV line: three signed longs, two commas and a newline
+    private static final int MAX_ROW_BYTES = 3 * 20 + 3;
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final byte[] digits = new byte[20];
+
+    /**
+     * @return number of rows written
+     */
+    public long export(Iterator<Row> rows, FileChannel channel, Format format) throws IOException {
+        buffer.clear();
+        if (format == Format.CSV) {
+            buffer.put(CSV_HEADER);
+        }
+        long written = 0;
+        while (rows.hasNext()) {
+            Row row = rows.next();
+            if (buffer.remaining() < MAX_ROW_BYTES) {
+                drain(channel);
+            }
+            long matchId = row.getLong("match_id");
+            long userId = row.getLong("user_id");
+            long seatId = row.getLong("seat_id");
+            if (format == Format.BINARY) {
+                buffer.putLong(matchId).putLong(userId).putLong(seatId);
+            } else {
+                putAscii(matchId);
+                buffer.put((byte) ',');
+                putAscii(userId);
+                buffer.put((byte) ',');
+                putAscii(seatId);
+                buffer.put((byte) '\n');
+            }
+            written++;
+        }
+        drain(channel);
+        return written;
+    }
+
+    private void drain(FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void putAscii(long value) {
+        if (value == Long.MIN_VALUE) {
+            buffer.put(Long.toString(value).getBytes(StandardCharsets.US_ASCII));
+            return;
+        }
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        int position = digits.length;
+        do {
+            digits[--position] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        buffer.put(digits, position, digits.length - position);
+    }
+}
@@ -0,0 +1,10 @@
+package org.cassandraproject;
+
+/**
+ * Result of processing a single reservation request.
+ */
+public enum ReservationOutcome {
+    GRANTED,
+    SEAT_TAKEN,
+    ALREADY_HAS_SEAT
+}
@@ -0,0 +1,73 @@
+package org.cassandraproject;
+
+import lombok.Value;
+import org.cassandraproject.metrics.LoadTestMetrics;
+import org.cassandraproject.metrics.Operation;
+import org.cassandraproject.metrics.Outcome;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Hands reservation outcomes from the processor to waiting clients in the same JVM, without a query.
+ * A client registers before its request is enqueued; the processor completes the registration after it has written
+ * the outcome to {@code reservation_results}. Clients that request the same seat for the same user share one
+ * registration, and the time from the first registration to the decision is recorded as {@link Operation#REQUEST_TO_GRANT}.
+ */
+public class ReservationOutcomeRegistry {
+
+    private final LoadTestMetrics metrics;
+    private final ConcurrentMap<Key, Pending> pending = new ConcurrentHashMap<>();
+
+    public ReservationOutcomeRegistry(LoadTestMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return a future of its own for the caller, completed when the request is decided
+     */
+    public CompletableFuture<ReservationOutcome> register(long matchId, long userId, long seatId) {
+        Pending registration = pending.compute(new Key(matchId, userId, seatId), (key, existing) -> {
+            Pending p = existing != null ? existing : new Pending();
+            p.waiters++;
+            return p;
+        });
+        return registration.outcome.thenApply(Function.identity());
+    }
+
+    /**
+     * Drops one registration of a request that was never enqueued or whose caller stopped waiting.
+     */
+    public void forget(long matchId, long userId, long seatId) {
+        pending.computeIfPresent(new Key(matchId, userId, seatId), (key, p) -> --p.waiters == 0 ? null : p);
+    }
+
+    public void complete(long matchId, long userId, long seatId, ReservationOutcome outcome) {
+        Pending registration = pending.remove(new Key(matchId, userId, seatId));
+        if (registration != null) {
+            metrics.record(Operation.REQUEST_TO_GRANT, registration.registeredNanos,
+                    outcome == ReservationOutcome.GRANTED ? Outcome.SUCCESS : Outcome.CONFLICT);
+            registration.outcome.complete(outcome);
+        }
+    }
+
+    public int size() {
+        return pending.size();
+    }
+
+    @Value
+    private static class Key {
+        long matchId;
+        long userId;
+        long seatId;
+    }
+
+    private static final class Pending {
+        private final CompletableFuture<ReservationOutcome> outcome = new CompletableFuture<>();
+        private final long registeredNanos = System.nanoTime();
+        // Only read and written inside ConcurrentHashMap.compute for this key
+        private int waiters;
+    }
+}
@@ -0,0 +1,101 @@
+package org.cassandraproject;
+
+import lombok.extern.slf4j.Slf4j;
+import org.cassandraproject.exception.BackendException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drains {@code reservation_requests} with a fixed pool of workers.
+ * Match partitions are assigned to workers round-robin ({@code (matchId - 1) % workers}),
+ * so each partition, and therefore each request, is only ever read by one worker.
+ * Client threads only enqueue; they never process the queue themselves.
+ */
+@Slf4j
+public class ReservationProcessor implements AutoCloseable {
+
+    private final CassandraService cassandraService;
+    private final int numMatches;
+    private final int workers;
+    private final int fetchSize;
+    private final long pollIntervalMs;
+
+    private final ExecutorService executor;
+    private final AtomicInteger processedTotal = new AtomicInteger();
+    private volatile boolean running;
+
+    public ReservationProcessor(Properties properties, CassandraService cassandraService, int numMatches) {
+        this.cassandraService = cassandraService;
+        this.numMatches = numMatches;
+        int configuredWorkers = Integer.parseInt(System.getenv().getOrDefault("PROCESSOR_WORKERS", properties.getProperty("processor.workers", "4")));
+        this.workers = Math.max(1, Math.min(configuredWorkers, numMatches));
+        this.fetchSize = Integer.parseInt(System.getenv().getOrDefault("PROCESSOR_FETCH_SIZE", properties.getProperty("processor.fetch_size", "500")));
+        this.pollIntervalMs = Long.parseLong(System.getenv().getOrDefault("PROCESSOR_POLL_INTERVAL_MS", properties.getProperty("processor.poll_interval_ms", "50")));
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(this.workers,
+                r -> new Thread(r, "reservation-worker-" + threadNumber.getAndIncrement()));
+    }
+
+    public void start() {
+        running = true;
+        for (int i = 0; i < workers; i++) {
+            List<Long> matchIds = new ArrayList<>();
+            for (long matchId = i + 1; matchId <= numMatches; matchId += workers) {
+                matchIds.add(matchId);
+            }
+            executor.submit(() -> work(matchIds));
+        }
+        log.info("Reservation processor started with " + workers + " workers");
+    }
+
+    private void work(List<Long> matchIds) {
+        log.debug(Thread.currentThread().getName() + " owns matches " + matchIds);
+        while (running) {
+            if (drain(matchIds) == 0) {
+                try {
+                    Thread.sleep(pollIntervalMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+        // Final pass for whatever was enqueued before the processor was stopped.
+        drain(matchIds);
+    }
+
+    private int drain(List<Long> matchIds) {
+        int processed = 0;
+        for (long matchId : matchIds) {
+            try {
+                processed += cassandraService.processReservationRequests(matchId, fetchSize);
+            } catch (BackendException e) {
+                log.error("Processing match " + matchId + " failed: " + e.getMessage());
+            }
+        }
+        processedTotal.addAndGet(processed);
+        return processed;
+    }
+
+    /**
+     * Stops polling, lets every worker run one last drain pass and waits for them to finish.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        executor.shutdown();
+        if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+            log.error("Reservation workers did not finish in time");
+            executor.shutdownNow();
+        }
+        log.info("Reservation processor stopped, " + processedTotal.get() + " requests processed");
+        log.info(cassandraService.getContentionStats().toString());
+    }
+}
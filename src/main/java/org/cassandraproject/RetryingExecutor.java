@@ -0,0 +1,155 @@
+package org.cassandraproject;
+
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.exceptions.BootstrappingException;
+import com.datastax.driver.core.exceptions.NoHostAvailableException;
+import com.datastax.driver.core.exceptions.OperationTimedOutException;
+import com.datastax.driver.core.exceptions.OverloadedException;
+import com.datastax.driver.core.exceptions.ReadTimeoutException;
+import com.datastax.driver.core.exceptions.UnavailableException;
+import com.datastax.driver.core.exceptions.WriteTimeoutException;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Executes statements and retries transient failures with exponential backoff and full jitter:
+ * attempt {@code n} waits a random time in {@code [0, min(maxDelay, baseDelay * 2^n))}.
+ * <p>
+ * Errors the server reports before applying anything (unavailable, overloaded, bootstrapping) are retried for
+ * every statement. Timeouts are only retried when the statement is idempotent, because the write may have been
+ * applied. Lightweight transactions are never idempotent (see {@link StatementRegistry}), so their timeouts reach the caller.
+ */
+@Slf4j
+public class RetryingExecutor implements AutoCloseable {
+
+    private final Session session;
+    private final int maxAttempts;
+    private final long baseDelayMicros;
+    private final long maxDelayMicros;
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "retry-backoff");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public RetryingExecutor(Session session, int maxAttempts, long baseDelayMicros, long maxDelayMicros) {
+        this.session = session;
+        this.maxAttempts = Math.max(maxAttempts, 1);
+        this.baseDelayMicros = baseDelayMicros;
+        this.maxDelayMicros = maxDelayMicros;
+    }
+
+    public ResultSet execute(Statement statement) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return session.execute(statement);
+            } catch (RuntimeException e) {
+                if (!shouldRetry(e, statement, attempt)) {
+                    throw e;
+                }
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(backoffMicros(attempt)));
+            }
+        }
+    }
+
+    public CompletableFuture<ResultSet> executeAsync(Statement statement) {
+        CompletableFuture<ResultSet> result = new CompletableFuture<>();
+        attemptAsync(statement, 1, result);
+        return result;
+    }
+
+    private void attemptAsync(Statement statement, int attempt, CompletableFuture<ResultSet> result) {
+        ResultSetFuture future;
+        try {
+            future = session.executeAsync(statement);
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+            return;
+        }
+        Futures.addCallback(future, new FutureCallback<ResultSet>() {
+            @Override
+            public void onSuccess(ResultSet rs) {
+                result.complete(rs);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                if (!shouldRetry(t, statement, attempt)) {
+                    result.completeExceptionally(t);
+                    return;
+                }
+                try {
+                    scheduler.schedule(() -> attemptAsync(statement, attempt + 1, result), backoffMicros(attempt), TimeUnit.MICROSECONDS);
+                } catch (RejectedExecutionException e) {
+                    result.completeExceptionally(t);
+                }
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    private boolean shouldRetry(Throwable t, Statement statement, int attempt) {
+        if (!isRetryable(t, Boolean.TRUE.equals(statement.isIdempotent()))) {
+            return false;
+        }
+        if (attempt >= maxAttempts) {
+            exhausted.increment();
+            log.warn("Giving up after " + attempt + " attempts: " + t.getMessage());
+            return false;
+        }
+        retries.increment();
+        log.debug("Retrying (attempt " + (attempt + 1) + ") after " + t.getClass().getSimpleName() + ": " + t.getMessage());
+        return true;
+    }
+
+    /**
+     * Whether {@code t} is transient and retrying cannot apply a write twice.
+     */
+    static boolean isRetryable(Throwable t, boolean idempotent) {
+        if (t instanceof UnavailableException || t instanceof OverloadedException || t instanceof BootstrappingException) {
+            return true;
+        }
+        if (t instanceof NoHostAvailableException) {
+            return idempotent || ((NoHostAvailableException) t).getErrors().values().stream()
+                    .noneMatch(error -> error instanceof OperationTimedOutException);
+        }
+        return idempotent && (t instanceof WriteTimeoutException || t instanceof ReadTimeoutException
+                || t instanceof OperationTimedOutException);
+    }
+
+    private long backoffMicros(int attempt) {
+        long ceiling = Math.min(maxDelayMicros, baseDelayMicros << Math.min(attempt - 1, 30));
+        return ThreadLocalRandom.current().nextLong(Math.max(ceiling, 1));
+    }
+
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    public long getExhausted() {
+        return exhausted.sum();
+    }
+
+    /**
+     * Stops accepting new backoffs; retries that are already scheduled still run.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+    }
+}
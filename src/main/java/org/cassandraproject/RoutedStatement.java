@@ -0,0 +1,31 @@
+package org.cassandraproject;
+
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.StatementWrapper;
+
+import java.util.Collection;
+
+/**
+ * A statement that should be coordinated by one of the given hosts, typically the replicas of a token range.
+ * Honoured by {@link ReplicaRoutingPolicy}; other policies just see the wrapped statement.
+ */
+public class RoutedStatement extends StatementWrapper {
+
+    private final Statement statement;
+    private final Collection<Host> replicas;
+
+    public RoutedStatement(Statement wrapped, Collection<Host> replicas) {
+        super(wrapped);
+        this.statement = wrapped;
+        this.replicas = replicas;
+    }
+
+    public Statement getStatement() {
+        return statement;
+    }
+
+    public Collection<Host> getReplicas() {
+        return replicas;
+    }
+}
@@ -0,0 +1,135 @@
+package org.cassandraproject;
+
+import com.datastax.driver.core.AuthProvider;
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.Session;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.cassandra.dht.Murmur3Partitioner;
+import org.apache.cassandra.io.sstable.CQLSSTableWriter;
+import org.apache.cassandra.io.sstable.SSTableLoader;
+import org.apache.cassandra.utils.NativeSSTableLoaderClient;
+import org.apache.cassandra.utils.OutputHandler;
+import org.cassandraproject.exception.BackendException;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongFunction;
+import java.util.stream.Stream;
+
+/**
+ * Seeds tables by writing SSTables locally with {@link CQLSSTableWriter} and, unless {@code streamToCluster} is off,
+ * streaming them to the replicas with {@link SSTableLoader}. This skips the coordinators and the commit log entirely.
+ * <p>
+ * Files go to {@code outputDirectory/<keyspace>/<table>}, the layout {@code sstableloader} expects, so files written
+ * with streaming off can be loaded later with {@code sstableloader -d <host> outputDirectory/<keyspace>/<table>}.
+ * Streaming uses the storage port of the nodes ({@code storage_port}, 7000 by default), not the native port.
+ * <p>
+ * Both run cassandra-all 3.11 in-process, which only works on a Java 8 runtime; on JDK 17 the writer fails with an
+ * {@code AssertionError} on {@code FileDescriptor.fd}. The constructor therefore rejects any other runtime up front.
+ */
+@Slf4j
+public class SSTableSeeder {
+
+    private final Session session;
+    private final String keySpace;
+    private final Path outputDirectory;
+    private final int bufferSizeMb;
+    private final boolean streamToCluster;
+
+    public SSTableSeeder(Session session, String keySpace, Path outputDirectory, int bufferSizeMb, boolean streamToCluster) {
+        String javaVersion = System.getProperty("java.specification.version");
+        if (!"1.8".equals(javaVersion)) {
+            throw new IllegalStateException("seed.mode=sstable needs a Java 8 runtime (cassandra-all 3.11), this is Java "
+                    + javaVersion + "; run with Java 8 or use seed.mode=cql");
+        }
+        this.session = session;
+        this.keySpace = keySpace;
+        this.outputDirectory = outputDirectory;
+        this.bufferSizeMb = bufferSizeMb;
+        this.streamToCluster = streamToCluster;
+    }
+
+    public boolean isStreamToCluster() {
+        return streamToCluster;
+    }
+
+    /**
+     * Writes {@code rowCount} rows of {@code table} and streams them if enabled.
+     *
+     * @param schema    the {@code CREATE TABLE} statement of the table, qualified with the keyspace
+     * @param insertCql an {@code INSERT} with one bind marker per value of {@code row}
+     */
+    public void seed(String table, String schema, String insertCql, long rowCount, LongFunction<Object[]> row) throws BackendException {
+        Path directory = outputDirectory.resolve(keySpace).resolve(table);
+        long start = System.nanoTime();
+        try {
+            prepareDirectory(directory);
+            try (CQLSSTableWriter writer = CQLSSTableWriter.builder()
+                    .inDirectory(directory.toFile())
+                    .forTable(schema)
+                    .using(qualify(insertCql, table))
+                    .withPartitioner(Murmur3Partitioner.instance)
+                    .withBufferSizeInMB(bufferSizeMb)
+                    .build()) {
+                for (long i = 0; i < rowCount; i++) {
+                    writer.addRow(row.apply(i));
+                }
+            }
+        } catch (Exception e) {
+            throw new BackendException("Error writing SSTables of " + table + ": " + e.getMessage(), e);
+        }
+        double seconds = Math.max(System.nanoTime() - start, 1) / 1_000_000_000.0;
+        log.info(String.format("Wrote %d %s rows to SSTables in %s in %.2f s (%.0f rows/s)",
+                rowCount, table, directory, seconds, rowCount / seconds));
+
+        if (streamToCluster) {
+            stream(table, directory);
+        }
+    }
+
+    private void stream(String table, Path directory) throws BackendException {
+        List<InetAddress> hosts = new ArrayList<>();
+        for (Host host : session.getCluster().getMetadata().getAllHosts()) {
+            hosts.add(host.getAddress());
+        }
+        int nativePort = session.getCluster().getConfiguration().getProtocolOptions().getPort();
+        AuthProvider authProvider = session.getCluster().getConfiguration().getProtocolOptions().getAuthProvider();
+
+        long start = System.nanoTime();
+        try {
+            SSTableLoader loader = new SSTableLoader(directory.toFile(),
+                    new NativeSSTableLoaderClient(hosts, nativePort, authProvider, null),
+                    new OutputHandler.LogOutput());
+            loader.stream().get();
+        } catch (Exception e) {
+            throw new BackendException("Error streaming SSTables of " + table + ": " + e.getMessage(), e);
+        }
+        log.info(String.format("Streamed %s SSTables to %d hosts in %.2f s",
+                table, hosts.size(), Math.max(System.nanoTime() - start, 1) / 1_000_000_000.0));
+    }
+
+    /**
+     * Creates the table directory, removing SSTables of a previous run so they are not streamed twice.
+     */
+    private static void prepareDirectory(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (Files.isRegularFile(file)) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * {@link CQLSSTableWriter} needs the keyspace in the insert, the service's statements rely on {@code USE}.
+     */
+    private String qualify(String insertCql, String table) {
+        return insertCql.replaceFirst("(?i)INSERT INTO " + table + "\\b", "INSERT INTO " + keySpace + "." + table);
+    }
+}
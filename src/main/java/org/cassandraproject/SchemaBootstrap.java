@@ -0,0 +1,164 @@
+package org.cassandraproject;
+
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.KeyspaceMetadata;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.SimpleStatement;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.schemabuilder.SchemaBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.cassandraproject.exception.BackendException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Creates the tables of a keyspace, doing as little as possible when they already exist.
+ * <p>
+ * Existing tables are looked up in the driver's schema metadata, which costs no round trip. If all of them
+ * exist and {@code schema_version} holds the fingerprint of the current definitions, nothing is executed.
+ * Otherwise the missing tables are created concurrently. This is safe because every statement creates a
+ * different table. After that the bootstrap waits for schema agreement once, instead of once per table.
+ * <p>
+ * {@code CREATE TABLE IF NOT EXISTS} never alters a table, so a fingerprint that differs from the stored one is
+ * only logged. Changed definitions still need a manual migration.
+ */
+@Slf4j
+public class SchemaBootstrap {
+
+    static final String VERSION_TABLE = "schema_version";
+    private static final String VERSION_KEY = "tables";
+    private static final long AGREEMENT_POLL_MILLIS = 200;
+
+    private final Session session;
+    private final String keySpace;
+
+    public SchemaBootstrap(Session session, String keySpace) {
+        this.session = session;
+        this.keySpace = keySpace;
+    }
+
+    /**
+     * @param tables {@code CREATE TABLE} statement of each table, by table name; the keyspace must already exist
+     */
+    public void bootstrap(Map<String, Statement> tables) throws BackendException {
+        long start = System.nanoTime();
+        long fingerprint = fingerprint(tables);
+        Map<String, Statement> all = new LinkedHashMap<>(tables);
+        all.put(VERSION_TABLE, versionTable());
+
+        KeyspaceMetadata keyspaceMetadata = session.getCluster().getMetadata().getKeyspace(keySpace);
+        if (keyspaceMetadata == null) {
+            throw new BackendException("Keyspace " + keySpace + " does not exist");
+        }
+        List<String> missing = new ArrayList<>();
+        for (String table : all.keySet()) {
+            if (keyspaceMetadata.getTable(table) == null) {
+                missing.add(table);
+            }
+        }
+
+        if (missing.isEmpty()) {
+            Long applied = readVersion();
+            if (applied != null && applied == fingerprint) {
+                log.info(String.format("Schema of %s is up to date (version %016x), checked in %.1f ms",
+                        keySpace, fingerprint, elapsedMillis(start)));
+                return;
+            }
+            log.warn(String.format("Tables of %s exist but were created from other definitions (version %s, expected %016x); "
+                    + "they are not altered", keySpace, applied == null ? "unknown" : String.format("%016x", applied), fingerprint));
+        } else {
+            create(missing, all);
+        }
+        writeVersion(fingerprint);
+        log.info(String.format("Schema of %s bootstrapped in %.1f ms, created %d of %d tables: %s",
+                keySpace, elapsedMillis(start), missing.size(), all.size(), missing));
+    }
+
+    private void create(List<String> missing, Map<String, Statement> all) throws BackendException {
+        List<ResultSetFuture> futures = new ArrayList<>(missing.size());
+        for (String table : missing) {
+            futures.add(session.executeAsync(all.get(table)));
+        }
+        boolean agreed = true;
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                ResultSet rs = futures.get(i).getUninterruptibly();
+                agreed &= rs.getExecutionInfo().isSchemaInAgreement();
+                log.info("Table " + missing.get(i) + " created successful");
+            } catch (Exception e) {
+                throw new BackendException("Could not create table " + missing.get(i) + ". " + e.getMessage(), e);
+            }
+        }
+        if (!agreed) {
+            awaitSchemaAgreement();
+        }
+    }
+
+    private void awaitSchemaAgreement() throws BackendException {
+        int maxWaitSeconds = session.getCluster().getConfiguration().getProtocolOptions().getMaxSchemaAgreementWaitSeconds();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(maxWaitSeconds);
+        while (!session.getCluster().getMetadata().checkSchemaAgreement()) {
+            if (System.nanoTime() > deadline) {
+                throw new BackendException("No schema agreement after " + maxWaitSeconds + " s");
+            }
+            try {
+                Thread.sleep(AGREEMENT_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BackendException("Interrupted while waiting for schema agreement", e);
+            }
+        }
+    }
+
+    private Statement versionTable() {
+        return SchemaBuilder.createTable(keySpace, VERSION_TABLE)
+                .ifNotExists()
+                .addPartitionKey("name", DataType.varchar())
+                .addColumn("fingerprint", DataType.bigint())
+                .addColumn("applied_at", DataType.timestamp());
+    }
+
+    private Long readVersion() throws BackendException {
+        try {
+            Row row = session.execute(new SimpleStatement(
+                    "SELECT fingerprint FROM " + keySpace + "." + VERSION_TABLE + " WHERE name = ?;", VERSION_KEY)).one();
+            return row == null ? null : row.getLong("fingerprint");
+        } catch (Exception e) {
+            throw new BackendException("Could not read schema version. " + e.getMessage(), e);
+        }
+    }
+
+    private void writeVersion(long fingerprint) throws BackendException {
+        try {
+            session.execute(new SimpleStatement("INSERT INTO " + keySpace + "." + VERSION_TABLE
+                    + " (name, fingerprint, applied_at) VALUES (?, ?, toTimestamp(now()));", VERSION_KEY, fingerprint));
+        } catch (Exception e) {
+            throw new BackendException("Could not write schema version. " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * CRC32 of the table names and their DDL, in order.
+     */
+    static long fingerprint(Map<String, Statement> tables) {
+        CRC32 crc = new CRC32();
+        tables.forEach((table, ddl) -> {
+            crc.update(table.getBytes(StandardCharsets.UTF_8));
+            crc.update(ddl.toString().getBytes(StandardCharsets.UTF_8));
+        });
+        return crc.getValue();
+    }
+
+    private static double elapsedMillis(long start) {
+        return (System.nanoTime() - start) / 1_000_000.0;
+    }
+}
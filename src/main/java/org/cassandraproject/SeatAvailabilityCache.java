@@ -0,0 +1,150 @@
+package org.cassandraproject;
+
+import lombok.extern.slf4j.Slf4j;
+import org.cassandraproject.exception.BackendException;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-process view of taken seats, one bitmap per match with bit {@code seatId - 1} set once the seat is taken.
+ * Bits are only ever set, never cleared, so a set bit is always correct; a clear bit may be stale,
+ * which is fine because the seat claim in Cassandra stays authoritative.
+ * At most {@code maxMatches} bitmaps are kept; the least recently used one is evicted and reloaded on demand.
+ */
+@Slf4j
+public class SeatAvailabilityCache {
+
+    /**
+     * Loads the taken seats of a match into a fresh bitmap.
+     */
+    public interface Loader {
+        void load(long matchId, SeatBitmap bitmap) throws BackendException;
+    }
+
+    private final int totalSeats;
+    private final int maxMatches;
+    private final Loader loader;
+    private final Map<Long, SeatBitmap> bitmaps = new ConcurrentHashMap<>();
+
+    public SeatAvailabilityCache(int totalSeats, int maxMatches, Loader loader) {
+        this.totalSeats = totalSeats;
+        this.maxMatches = maxMatches;
+        this.loader = loader;
+    }
+
+    public boolean isTaken(long matchId, long seatId) throws BackendException {
+        return bitmap(matchId).isTaken(seatId);
+    }
+
+    public void markTaken(long matchId, long seatId) throws BackendException {
+        bitmap(matchId).markTaken(seatId);
+    }
+
+    /**
+     * Returns the first seat at or after {@code fromSeatId} (wrapping around) not known to be taken, or -1 if none is left.
+     */
+    public long pickFreeSeat(long matchId, long fromSeatId) throws BackendException {
+        return bitmap(matchId).nextFree(fromSeatId);
+    }
+
+    public void warm(long matchId) throws BackendException {
+        bitmap(matchId);
+    }
+
+    private SeatBitmap bitmap(long matchId) throws BackendException {
+        SeatBitmap bitmap = bitmaps.get(matchId);
+        if (bitmap == null) {
+            SeatBitmap loaded = new SeatBitmap(totalSeats);
+            loader.load(matchId, loaded);
+            bitmap = bitmaps.putIfAbsent(matchId, loaded);
+            if (bitmap == null) {
+                bitmap = loaded;
+                evictIfNeeded();
+            }
+        }
+        bitmap.lastAccess = System.nanoTime();
+        return bitmap;
+    }
+
+    private void evictIfNeeded() {
+        while (bitmaps.size() > maxMatches) {
+            Long coldest = null;
+            long coldestAccess = Long.MAX_VALUE;
+            for (Map.Entry<Long, SeatBitmap> entry : bitmaps.entrySet()) {
+                if (entry.getValue().lastAccess < coldestAccess) {
+                    coldestAccess = entry.getValue().lastAccess;
+                    coldest = entry.getKey();
+                }
+            }
+            if (coldest == null) {
+                return;
+            }
+            bitmaps.remove(coldest);
+            log.debug("Evicted seat bitmap of match " + coldest);
+        }
+    }
+
+    public static final class SeatBitmap {
+        private final int totalSeats;
+        private final AtomicLongArray words;
+        private volatile long lastAccess = System.nanoTime();
+
+        SeatBitmap(int totalSeats) {
+            this.totalSeats = totalSeats;
+            this.words = new AtomicLongArray((totalSeats + 63) >>> 6);
+        }
+
+        public boolean isTaken(long seatId) {
+            if (seatId < 1 || seatId > totalSeats) {
+                return false;
+            }
+            int bit = (int) (seatId - 1);
+            return (words.get(bit >>> 6) & (1L << bit)) != 0;
+        }
+
+        /**
+         * Sets the seat's bit with a CAS loop; returns {@code false} if it was already set.
+         */
+        public boolean markTaken(long seatId) {
+            if (seatId < 1 || seatId > totalSeats) {
+                return false;
+            }
+            int bit = (int) (seatId - 1);
+            int index = bit >>> 6;
+            long mask = 1L << bit;
+            long word;
+            do {
+                word = words.get(index);
+                if ((word & mask) != 0) {
+                    return false;
+                }
+            } while (!words.compareAndSet(index, word, word | mask));
+            return true;
+        }
+
+        long nextFree(long fromSeatId) {
+            if (totalSeats == 0) {
+                return -1;
+            }
+            int start = (int) Math.floorMod(fromSeatId - 1, (long) totalSeats);
+            int wordCount = words.length();
+            int index = start >>> 6;
+            // Ignore bits below the starting seat in the first word; they are checked last after wrapping.
+            long free = ~words.get(index) & (-1L << start);
+            for (int i = 0; i <= wordCount; i++) {
+                while (free != 0) {
+                    int bit = (index << 6) + Long.numberOfTrailingZeros(free);
+                    if (bit < totalSeats) {
+                        return bit + 1L;
+                    }
+                    free = 0;
+                }
+                index = index + 1 == wordCount ? 0 : index + 1;
+                free = ~words.get(index);
+            }
+            return -1;
+        }
+    }
+}
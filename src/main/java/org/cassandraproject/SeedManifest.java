@@ -0,0 +1,24 @@
+package org.cassandraproject;
+
+import lombok.Value;
+
+/**
+ * Row of the {@code seed_manifest} table: what was seeded into one table and how far it got.
+ * Seeding is split into chunks of {@code chunkSize} rows; {@code completedChunks} are known to be written.
+ */
+@Value
+public class SeedManifest {
+    String tableName;
+    long rowCount;
+    long checksum;
+    int chunkSize;
+    long completedChunks;
+    boolean complete;
+
+    /**
+     * Whether this manifest describes the same data set, so its progress can be trusted.
+     */
+    public boolean matches(long rowCount, long checksum, int chunkSize) {
+        return this.rowCount == rowCount && this.checksum == checksum && this.chunkSize == chunkSize;
+    }
+}
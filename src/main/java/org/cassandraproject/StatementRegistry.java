@@ -0,0 +1,71 @@
+package org.cassandraproject;
+
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ProtocolVersion;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.TypeCodec;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.ByteBuffer;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+/**
+ * Prepares each CQL string once per {@link Session} and hands out {@link BoundStatement}s for it.
+ * Safe to share between threads; the first caller of a given CQL pays for the round trip.
+ * Prepared statements are marked idempotent according to {@link #isIdempotent(String)}.
+ */
+@Slf4j
+public class StatementRegistry {
+
+    private static final Pattern COUNTER_UPDATE = Pattern.compile("\\b(\\w+)\\s*=\\s*\\1\\s*[+-]");
+
+    private final Session session;
+    private final ConcurrentMap<String, PreparedStatement> statements = new ConcurrentHashMap<>();
+
+    public StatementRegistry(Session session) {
+        this.session = session;
+    }
+
+    public PreparedStatement prepare(String cql) {
+        return statements.computeIfAbsent(cql, query -> {
+            log.debug("Preparing: " + query);
+            return session.prepare(query).setIdempotent(isIdempotent(query));
+        });
+    }
+
+    /**
+     * A statement is idempotent unless it is a lightweight transaction, depends on the server clock or
+     * updates a counter ({@code c = c + ?}); only idempotent statements get speculative executions and
+     * retries after a timeout.
+     */
+    static boolean isIdempotent(String cql) {
+        String normalized = cql.toUpperCase(Locale.ROOT);
+        return !normalized.contains(" IF ") && !normalized.contains("NOW()") && !COUNTER_UPDATE.matcher(normalized).find();
+    }
+
+    public BoundStatement bind(String cql, Object... values) {
+        return prepare(cql).bind(values);
+    }
+
+    /**
+     * Binds the statement and sets an explicit routing key for a single {@code bigint} partition key,
+     * so the token-aware policy can pick a replica without relying on prepared metadata.
+     */
+    public BoundStatement bindRouted(String cql, long partitionKey, Object... values) {
+        BoundStatement bs = bind(cql, values);
+        bs.setRoutingKey(routingKey(partitionKey));
+        return bs;
+    }
+
+    public ByteBuffer routingKey(long partitionKey) {
+        return TypeCodec.bigint().serialize(partitionKey, protocolVersion());
+    }
+
+    private ProtocolVersion protocolVersion() {
+        return session.getCluster().getConfiguration().getProtocolOptions().getProtocolVersion();
+    }
+}
@@ -0,0 +1,238 @@
+package org.cassandraproject;
+
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.Metadata;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Token;
+import com.datastax.driver.core.TokenRange;
+import com.datastax.driver.core.exceptions.DriverException;
+import lombok.extern.slf4j.Slf4j;
+import org.cassandraproject.exception.BackendException;
+import org.cassandraproject.metrics.LoadTestMetrics;
+import org.cassandraproject.metrics.Operation;
+import org.cassandraproject.metrics.Outcome;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads a whole table by splitting the token ring into sub-ranges and querying them in parallel,
+ * each one coordinated by a replica that owns it (see {@link ReplicaRoutingPolicy}).
+ * <p>
+ * Every range of {@link Metadata#getTokenRanges()} is split into {@code splitsPerRange} pieces and scanned with
+ * {@code token(pk) > ? AND token(pk) <= ?} on a pool of {@code parallelism} threads. A piece that fails is retried
+ * up to {@code maxRetries} times.
+ * <p>
+ * Rows are handed over as they stream in, nothing is buffered. Each piece remembers the token, partition key and
+ * clustering key of the last row it delivered. A retry first reads the rest of that partition with
+ * {@code pk = ? AND ck > ?}, then continues with {@code token(pk) > ?}, so every row reaches the handler exactly once.
+ */
+@Slf4j
+public class TokenRangeScanner {
+
+    /**
+     * Consumes scanned rows. Called concurrently from the scanner's threads.
+     */
+    public interface RowHandler {
+        void accept(Row row) throws BackendException;
+    }
+
+    private final Session session;
+    private final String keySpace;
+    private final StatementRegistry statements;
+    private final LoadTestMetrics metrics;
+    private final int parallelism;
+    private final int splitsPerRange;
+    private final int maxRetries;
+    private final int fetchSize;
+
+    public TokenRangeScanner(Session session, String keySpace, StatementRegistry statements, LoadTestMetrics metrics,
+                             int parallelism, int splitsPerRange, int maxRetries, int fetchSize) {
+        this.session = session;
+        this.keySpace = keySpace;
+        this.statements = statements;
+        this.metrics = metrics;
+        this.parallelism = parallelism;
+        this.splitsPerRange = splitsPerRange;
+        this.maxRetries = maxRetries;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Scans {@code table}, handing every row to {@code handler}. The first column of each row is
+     * {@code token(partitionKey)}, followed by {@code columns}.
+     *
+     * @param partitionKey  the partition key column(s), comma separated when composite
+     * @param clusteringKey the single, ascending clustering column, {@code null} when partitions hold one row;
+     *                      {@code columns} must contain it and the partition key so a retry can resume mid-partition
+     * @return number of rows handed to {@code handler}
+     */
+    public long scan(String table, String partitionKey, String clusteringKey, String columns, RowHandler handler) throws BackendException {
+        Scan scan = new Scan(table, partitionKey, clusteringKey, columns, handler);
+        List<Split> splits = splits();
+        long start = System.nanoTime();
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, splits.size()), r -> {
+            Thread thread = new Thread(r, "token-scan-" + table + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Long>> futures = new ArrayList<>(splits.size());
+            for (Split split : splits) {
+                futures.add(executor.submit(() -> scanSplit(split, scan)));
+            }
+            long rows = 0;
+            for (Future<Long> future : futures) {
+                rows += future.get();
+            }
+            double seconds = Math.max(System.nanoTime() - start, 1) / 1_000_000_000.0;
+            log.info(String.format("Scanned %d %s rows in %d token ranges in %.2f s (%.0f rows/s)",
+                    rows, table, splits.size(), seconds, rows / seconds));
+            return rows;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BackendException("Interrupted while scanning " + table, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof BackendException) {
+                throw (BackendException) cause;
+            }
+            throw new BackendException("Error scanning " + table + ": " + cause.getMessage(),
+                    cause instanceof Exception ? (Exception) cause : new RuntimeException(cause));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<Split> splits() {
+        Metadata metadata = session.getCluster().getMetadata();
+        List<Split> splits = new ArrayList<>();
+        for (TokenRange range : metadata.getTokenRanges()) {
+            Set<Host> replicas = metadata.getReplicas(Metadata.quote(keySpace), range);
+            for (TokenRange piece : range.splitEvenly(splitsPerRange)) {
+                for (TokenRange unwrapped : piece.unwrap()) {
+                    splits.add(new Split(unwrapped, replicas));
+                }
+            }
+        }
+        return splits;
+    }
+
+    private long scanSplit(Split split, Scan scan) throws BackendException {
+        // After unwrap() only the last range can end at the minimum token, which then means "up to the end of the ring"
+        boolean open = split.range.getEnd().compareTo(split.range.getStart()) <= 0;
+        Position position = new Position(split.range.getStart(), scan.partitionKeyColumns.length);
+
+        for (int attempt = 0; ; attempt++) {
+            long start = System.nanoTime();
+            try {
+                if (position.inPartition) {
+                    BoundStatement rest = statements.bind(scan.partitionRestCql);
+                    for (int i = 0; i < position.partitionKey.length; i++) {
+                        rest.setBytesUnsafe(i, position.partitionKey[i]);
+                    }
+                    rest.setBytesUnsafe(position.partitionKey.length, position.clustering);
+                    stream(rest, split, scan, position);
+                    position.inPartition = false;
+                }
+
+                BoundStatement bs = statements.bind(open ? scan.openCql : scan.boundedCql);
+                bs.setToken(0, position.token);
+                if (!open) {
+                    bs.setToken(1, split.range.getEnd());
+                }
+                stream(bs, split, scan, position);
+                metrics.record(Operation.SCAN_RANGE, start, Outcome.SUCCESS);
+                return position.rows;
+            } catch (DriverException e) {
+                metrics.record(Operation.SCAN_RANGE, start, Outcome.ERROR);
+                if (attempt >= maxRetries) {
+                    throw new BackendException("Could not scan token range " + split.range + ": " + e.getMessage(), e);
+                }
+                log.warn("Retrying token range " + split.range + " after " + position.token + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void stream(BoundStatement bs, Split split, Scan scan, Position position) throws BackendException {
+        bs.setFetchSize(fetchSize);
+        bs.setIdempotent(true);
+        for (Row row : session.execute(new RoutedStatement(bs, split.replicas))) {
+            scan.handler.accept(row);
+            position.delivered(row, scan);
+        }
+    }
+
+    /**
+     * The statements of one {@link #scan} call.
+     */
+    private static final class Scan {
+        private final String boundedCql;
+        private final String openCql;
+        private final String partitionRestCql;
+        private final String[] partitionKeyColumns;
+        private final String clusteringKey;
+        private final RowHandler handler;
+
+        private Scan(String table, String partitionKey, String clusteringKey, String columns, RowHandler handler) {
+            String select = "SELECT token(" + partitionKey + "), " + columns + " FROM " + table;
+            String range = select + " WHERE token(" + partitionKey + ") > ?";
+            this.boundedCql = range + " AND token(" + partitionKey + ") <= ?;";
+            this.openCql = range + ";";
+            this.partitionKeyColumns = partitionKey.split("\\s*,\\s*");
+            this.clusteringKey = clusteringKey;
+            this.partitionRestCql = clusteringKey == null ? null
+                    : select + " WHERE " + String.join(" = ? AND ", partitionKeyColumns) + " = ? AND " + clusteringKey + " > ?;";
+            this.handler = handler;
+        }
+    }
+
+    /**
+     * Where a split continues after a failure: behind the last delivered row.
+     */
+    private static final class Position {
+        private Token token;
+        private final ByteBuffer[] partitionKey;
+        private ByteBuffer clustering;
+        // The last delivered row may not be the last one of its partition
+        private boolean inPartition;
+        private long rows;
+
+        private Position(Token start, int partitionKeyColumns) {
+            this.token = start;
+            this.partitionKey = new ByteBuffer[partitionKeyColumns];
+        }
+
+        private void delivered(Row row, Scan scan) {
+            rows++;
+            token = row.getToken(0);
+            if (scan.clusteringKey != null) {
+                for (int i = 0; i < partitionKey.length; i++) {
+                    partitionKey[i] = row.getBytesUnsafe(scan.partitionKeyColumns[i]);
+                }
+                clustering = row.getBytesUnsafe(scan.clusteringKey);
+                inPartition = true;
+            }
+        }
+    }
+
+    private static final class Split {
+        private final TokenRange range;
+        private final Set<Host> replicas;
+
+        private Split(TokenRange range, Set<Host> replicas) {
+            this.range = range;
+            this.replicas = replicas;
+        }
+    }
+}
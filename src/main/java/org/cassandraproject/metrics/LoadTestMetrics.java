@@ -0,0 +1,134 @@
+package org.cassandraproject.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-{@link Operation} latency and outcome statistics for one load-test run.
+ * All stats objects are created up front, so {@link #record(Operation, long, Outcome)} never allocates.
+ * Components can also register named counters, which are sampled when the summary or JSON report is written.
+ */
+@Slf4j
+public class LoadTestMetrics {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+    private final Map<String, LongSupplier> counters = new ConcurrentSkipListMap<>();
+    private final long startNanos = System.nanoTime();
+
+    public LoadTestMetrics() {
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new OperationStats());
+        }
+    }
+
+    /**
+     * Records an operation that started at {@code startNanos} (from {@link System#nanoTime()}) and has just finished.
+     */
+    public void record(Operation operation, long startNanos, Outcome outcome) {
+        stats.get(operation).record(startNanos, System.nanoTime(), outcome);
+    }
+
+    public OperationStats get(Operation operation) {
+        return stats.get(operation);
+    }
+
+    public void registerCounter(String name, LongSupplier value) {
+        counters.put(name, value);
+    }
+
+    public void printSummary() {
+        double elapsed = elapsedSeconds();
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "%nLoad test summary (%.1f s)%n", elapsed));
+        sb.append(String.format(Locale.ROOT, "%-16s %10s %10s %8s %10s %9s %9s %9s %9s %9s%n",
+                "operation", "ok", "conflict", "error", "ops/s", "p50 us", "p90 us", "p99 us", "p999 us", "max us"));
+        for (Map.Entry<Operation, OperationStats> entry : stats.entrySet()) {
+            OperationStats s = entry.getValue();
+            LatencyHistogram h = s.getHistogram();
+            if (h.getCount() == 0) {
+                continue;
+            }
+            sb.append(String.format(Locale.ROOT, "%-16s %10d %10d %8d %10.1f %9d %9d %9d %9d %9d%n",
+                    entry.getKey(), s.getSuccesses(), s.getConflicts(), s.getErrors(), s.getOpsPerSecond(),
+                    h.percentileMicros(PERCENTILES[0]), h.percentileMicros(PERCENTILES[1]),
+                    h.percentileMicros(PERCENTILES[2]), h.percentileMicros(PERCENTILES[3]), h.getMaxMicros()));
+        }
+        for (Map.Entry<String, LongSupplier> counter : counters.entrySet()) {
+            sb.append(String.format(Locale.ROOT, "%-28s %10d%n", counter.getKey(), counter.getValue().getAsLong()));
+        }
+        log.info(sb.toString());
+    }
+
+    public void writeCsv(Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("operation,successes,conflicts,errors,ops_per_sec,p50_us,p90_us,p99_us,p999_us,max_us\n");
+            for (Map.Entry<Operation, OperationStats> entry : stats.entrySet()) {
+                OperationStats s = entry.getValue();
+                LatencyHistogram h = s.getHistogram();
+                writer.write(String.format(Locale.ROOT, "%s,%d,%d,%d,%.2f,%d,%d,%d,%d,%d%n",
+                        entry.getKey(), s.getSuccesses(), s.getConflicts(), s.getErrors(), s.getOpsPerSecond(),
+                        h.percentileMicros(PERCENTILES[0]), h.percentileMicros(PERCENTILES[1]),
+                        h.percentileMicros(PERCENTILES[2]), h.percentileMicros(PERCENTILES[3]), h.getMaxMicros()));
+            }
+        }
+    }
+
+    public void writeJson(Path file) throws IOException {
+        double elapsed = elapsedSeconds();
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(String.format(Locale.ROOT, "{\n  \"elapsed_seconds\": %.3f,\n  \"operations\": {", elapsed));
+            String separator = "\n";
+            for (Map.Entry<Operation, OperationStats> entry : stats.entrySet()) {
+                OperationStats s = entry.getValue();
+                LatencyHistogram h = s.getHistogram();
+                writer.write(separator);
+                writer.write(String.format(Locale.ROOT,
+                        "    \"%s\": {\"successes\": %d, \"conflicts\": %d, \"errors\": %d, \"ops_per_sec\": %.2f, "
+                                + "\"p50_us\": %d, \"p90_us\": %d, \"p99_us\": %d, \"p999_us\": %d, \"max_us\": %d}",
+                        entry.getKey(), s.getSuccesses(), s.getConflicts(), s.getErrors(), s.getOpsPerSecond(),
+                        h.percentileMicros(PERCENTILES[0]), h.percentileMicros(PERCENTILES[1]),
+                        h.percentileMicros(PERCENTILES[2]), h.percentileMicros(PERCENTILES[3]), h.getMaxMicros()));
+                separator = ",\n";
+            }
+            writer.write("\n  },\n  \"counters\": {");
+            separator = "\n";
+            for (Map.Entry<String, LongSupplier> counter : counters.entrySet()) {
+                writer.write(separator);
+                writer.write(String.format(Locale.ROOT, "    \"%s\": %d", counter.getKey(), counter.getValue().getAsLong()));
+                separator = ",\n";
+            }
+            writer.write("\n  }\n}\n");
+        }
+    }
+
+    /**
+     * Prints the summary and writes {@code load-test-report.csv}/{@code .json} into {@code directory}.
+     */
+    public void report(Path directory) {
+        printSummary();
+        try {
+            Files.createDirectories(directory);
+            writeCsv(directory.resolve("load-test-report.csv"));
+            writeJson(directory.resolve("load-test-report.json"));
+            log.info("Load test report written to " + directory.toAbsolutePath());
+        } catch (IOException e) {
+            log.error("Could not write load test report: " + e.getMessage());
+        }
+    }
+
+    private double elapsedSeconds() {
+        return Math.max(System.nanoTime() - startNanos, 1) / 1_000_000_000.0;
+    }
+}
@@ -0,0 +1,29 @@
+package org.cassandraproject.metrics;
+
+/**
+ * Every {@code CassandraService} call that is timed by {@link LoadTestMetrics}.
+ */
+public enum Operation {
+    UPSERT_USER,
+    REQUEST_SEAT,
+    POLL_STATUS,
+    REQUEST_TO_GRANT,
+    FLUSH_BATCH,
+    SELECT_REQUESTS,
+    CLAIM_SEAT,
+    CLAIM_USER,
+    RELEASE_SEAT,
+    DELETE_REQUEST,
+    WRITE_RESULT,
+    UPDATE_COUNTERS,
+    READ_COUNTERS,
+    DROP_BUCKET,
+    QUEUE_CURSOR,
+    LOAD_TAKEN_SEATS,
+    READ_RESERVATIONS,
+    SCAN_RANGE,
+    SEED_USERS,
+    SEED_SECTORS,
+    SEED_MATCHES,
+    SEED_MANIFEST
+}
@@ -0,0 +1,64 @@
+package org.cassandraproject.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram plus outcome counters of a single {@link Operation}.
+ * Throughput is measured over the operation's own active window, from the start of its first call to the end
+ * of its last one, so seeding does not dilute the rate of request operations and vice versa.
+ */
+public class OperationStats {
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAccumulator firstStartNanos = new LongAccumulator(Math::min, Long.MAX_VALUE);
+    private final LongAccumulator lastEndNanos = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+    void record(long startNanos, long endNanos, Outcome outcome) {
+        histogram.recordNanos(endNanos - startNanos);
+        firstStartNanos.accumulate(startNanos);
+        lastEndNanos.accumulate(endNanos);
+        switch (outcome) {
+            case SUCCESS:
+                successes.increment();
+                break;
+            case CONFLICT:
+                conflicts.increment();
+                break;
+            case ERROR:
+                errors.increment();
+                break;
+        }
+    }
+
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
+
+    public long getSuccesses() {
+        return successes.sum();
+    }
+
+    public long getConflicts() {
+        return conflicts.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    /**
+     * Calls per second between the start of the first call and the end of the last one; 0 before any call.
+     */
+    public double getOpsPerSecond() {
+        long count = histogram.getCount();
+        if (count == 0) {
+            return 0;
+        }
+        long window = Math.max(lastEndNanos.get() - firstStartNanos.get(), 1);
+        return count / (window / 1_000_000_000.0);
+    }
+}
@@ -0,0 +1,11 @@
+package org.cassandraproject.metrics;
+
+/**
+ * How a timed operation ended. {@code CONFLICT} means the operation worked but lost a race,
+ * e.g. a seat claim that came back not applied or a request rejected as already taken.
+ */
+public enum Outcome {
+    SUCCESS,
+    CONFLICT,
+    ERROR
+}
@@ -0,0 +1,32 @@
+package org.cassandraproject.workload;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A contiguous block of {@code hotFraction * n} ids in the middle of {@code 1..n} receives {@code hotTraffic}
+ * of the draws, the rest is spread uniformly over the other ids. For sectors this models the center stands.
+ */
+public class HotspotDistribution implements KeyDistribution {
+
+    private final long n;
+    private final long hotStart;
+    private final long hotSize;
+    private final double hotTraffic;
+
+    public HotspotDistribution(long n, double hotFraction, double hotTraffic) {
+        this.n = n;
+        this.hotSize = Math.max(1, Math.min(n, Math.round(n * hotFraction)));
+        this.hotStart = (n - hotSize) / 2 + 1;
+        this.hotTraffic = hotSize == n ? 1.0 : hotTraffic;
+    }
+
+    @Override
+    public long next() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextDouble() < hotTraffic) {
+            return hotStart + random.nextLong(hotSize);
+        }
+        long cold = random.nextLong(n - hotSize) + 1;
+        return cold < hotStart ? cold : cold + hotSize;
+    }
+}
@@ -0,0 +1,27 @@
+package org.cassandraproject.workload;
+
+import java.util.Locale;
+
+/**
+ * Draws ids in {@code 1..n}. Implementations keep no per-draw state and use {@link java.util.concurrent.ThreadLocalRandom},
+ * so one instance can be shared by every client without allocating or contending.
+ */
+public interface KeyDistribution {
+
+    enum Type {
+        UNIFORM, ZIPFIAN, HOTSPOT
+    }
+
+    long next();
+
+    static KeyDistribution create(String type, long n, double zipfExponent, double hotFraction, double hotTraffic) {
+        switch (Type.valueOf(type.toUpperCase(Locale.ROOT))) {
+            case ZIPFIAN:
+                return new ZipfianDistribution(n, zipfExponent);
+            case HOTSPOT:
+                return new HotspotDistribution(n, hotFraction, hotTraffic);
+            default:
+                return new UniformDistribution(n);
+        }
+    }
+}
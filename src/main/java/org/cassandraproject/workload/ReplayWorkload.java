@@ -0,0 +1,71 @@
+package org.cassandraproject.workload;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replays recorded requests from a file with one {@code match_id,user_id,seat_id} line per request,
+ * in file order and wrapping around at the end. Blank lines, {@code #} comments and a header line are skipped.
+ * The file is parsed once into flat arrays, so drawing only bumps a shared index.
+ */
+@Slf4j
+public class ReplayWorkload implements WorkloadGenerator {
+
+    private final long[] matchIds;
+    private final long[] userIds;
+    private final long[] seatIds;
+    private final AtomicLong position = new AtomicLong();
+
+    private ReplayWorkload(long[] matchIds, long[] userIds, long[] seatIds) {
+        this.matchIds = matchIds;
+        this.userIds = userIds;
+        this.seatIds = seatIds;
+    }
+
+    public static ReplayWorkload load(Path file) throws IOException {
+        long[] matchIds = new long[1024];
+        long[] userIds = new long[1024];
+        long[] seatIds = new long[1024];
+        int count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#") || !Character.isDigit(line.charAt(0))) {
+                    continue;
+                }
+                String[] fields = line.split(",");
+                if (fields.length < 3) {
+                    throw new IOException("Expected match_id,user_id,seat_id in " + file + " but got: " + line);
+                }
+                if (count == matchIds.length) {
+                    matchIds = Arrays.copyOf(matchIds, count * 2);
+                    userIds = Arrays.copyOf(userIds, count * 2);
+                    seatIds = Arrays.copyOf(seatIds, count * 2);
+                }
+                matchIds[count] = Long.parseLong(fields[0].trim());
+                userIds[count] = Long.parseLong(fields[1].trim());
+                seatIds[count] = Long.parseLong(fields[2].trim());
+                count++;
+            }
+        }
+        if (count == 0) {
+            throw new IOException("No requests to replay in " + file);
+        }
+        log.info("Loaded " + count + " requests to replay from " + file);
+        return new ReplayWorkload(Arrays.copyOf(matchIds, count), Arrays.copyOf(userIds, count), Arrays.copyOf(seatIds, count));
+    }
+
+    @Override
+    public void next(Request request) {
+        int i = (int) (position.getAndIncrement() % matchIds.length);
+        request.set(matchIds[i], userIds[i], seatIds[i]);
+    }
+}
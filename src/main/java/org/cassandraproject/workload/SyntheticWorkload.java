@@ -0,0 +1,29 @@
+package org.cassandraproject.workload;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Draws the match, the user and the sector from independent distributions, then a uniform seat in that sector.
+ * Seat ids run sector by sector, as seeded by {@code CassandraService#seedSectors}.
+ */
+public class SyntheticWorkload implements WorkloadGenerator {
+
+    private final KeyDistribution matches;
+    private final KeyDistribution users;
+    private final KeyDistribution sectors;
+    private final int seatsPerSector;
+
+    public SyntheticWorkload(KeyDistribution matches, KeyDistribution users, KeyDistribution sectors, int seatsPerSector) {
+        this.matches = matches;
+        this.users = users;
+        this.sectors = sectors;
+        this.seatsPerSector = seatsPerSector;
+    }
+
+    @Override
+    public void next(Request request) {
+        long sector = sectors.next();
+        long seat = (sector - 1) * seatsPerSector + ThreadLocalRandom.current().nextInt(seatsPerSector) + 1;
+        request.set(matches.next(), users.next(), seat);
+    }
+}
@@ -0,0 +1,20 @@
+package org.cassandraproject.workload;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Every id in {@code 1..n} is equally likely; the original client behaviour.
+ */
+public class UniformDistribution implements KeyDistribution {
+
+    private final long n;
+
+    public UniformDistribution(long n) {
+        this.n = n;
+    }
+
+    @Override
+    public long next() {
+        return ThreadLocalRandom.current().nextLong(n) + 1;
+    }
+}
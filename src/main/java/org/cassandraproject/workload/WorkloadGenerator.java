@@ -0,0 +1,62 @@
+package org.cassandraproject.workload;
+
+import lombok.Getter;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Decides which match, user and seat the next simulated client goes for.
+ * Generators are shared by all clients and must be thread-safe; {@link #next(Request)} fills a holder owned by
+ * the calling client, so drawing a request never allocates.
+ */
+public interface WorkloadGenerator {
+
+    enum Type {
+        SYNTHETIC, REPLAY
+    }
+
+    void next(Request request);
+
+    /**
+     * Mutable holder for one drawn request, reused by its client.
+     */
+    @Getter
+    final class Request {
+        long matchId;
+        long userId;
+        long seatId;
+
+        public void set(long matchId, long userId, long seatId) {
+            this.matchId = matchId;
+            this.userId = userId;
+            this.seatId = seatId;
+        }
+    }
+
+    /**
+     * Builds the generator configured by the {@code workload.*} and {@code stadium.*} properties.
+     */
+    static WorkloadGenerator create(Properties properties) throws IOException {
+        Type type = Type.valueOf(System.getenv().getOrDefault("WORKLOAD_TYPE", properties.getProperty("workload.type", "synthetic")).toUpperCase(Locale.ROOT));
+        if (type == Type.REPLAY) {
+            return ReplayWorkload.load(Paths.get(System.getenv().getOrDefault("WORKLOAD_REPLAY_FILE", properties.getProperty("workload.replay_file"))));
+        }
+
+        int numUsers = Integer.parseInt(System.getenv().getOrDefault("ENV_USERS", properties.getProperty("stadium.num_users")));
+        int numSectors = Integer.parseInt(System.getenv().getOrDefault("ENV_NUM_SECTORS", properties.getProperty("stadium.num_sectors")));
+        int numSeatsPerSectors = Integer.parseInt(System.getenv().getOrDefault("ENV_NUM_SEATS_SECTOR", properties.getProperty("stadium.num_seats_per_sector")));
+        int numMatches = Integer.parseInt(System.getenv().getOrDefault("ENV_NUM_MATCHES", properties.getProperty("stadium.num_matches")));
+        double zipfExponent = Double.parseDouble(System.getenv().getOrDefault("WORKLOAD_ZIPF_EXPONENT", properties.getProperty("workload.zipf_exponent", "0.99")));
+        double hotFraction = Double.parseDouble(System.getenv().getOrDefault("WORKLOAD_HOT_FRACTION", properties.getProperty("workload.hot_fraction", "0.2")));
+        double hotTraffic = Double.parseDouble(System.getenv().getOrDefault("WORKLOAD_HOT_TRAFFIC", properties.getProperty("workload.hot_traffic", "0.8")));
+
+        KeyDistribution matches = KeyDistribution.create(System.getenv().getOrDefault("WORKLOAD_MATCHES", properties.getProperty("workload.matches", "uniform")),
+                numMatches, zipfExponent, hotFraction, hotTraffic);
+        KeyDistribution sectors = KeyDistribution.create(System.getenv().getOrDefault("WORKLOAD_SECTORS", properties.getProperty("workload.sectors", "uniform")),
+                numSectors, zipfExponent, hotFraction, hotTraffic);
+        return new SyntheticWorkload(matches, new UniformDistribution(numUsers), sectors, numSeatsPerSectors);
+    }
+}
@@ -0,0 +1,56 @@
+package org.cassandraproject.workload;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Zipf-distributed ids: id {@code k} is drawn with probability proportional to {@code 1/k^theta},
+ * so id 1 is the derby that everyone wants. Uses the rejection-free method of Gray et al.
+ * ("Quickly generating billion-record synthetic databases", 1994); the zeta constant is computed once, in O(n).
+ */
+public class ZipfianDistribution implements KeyDistribution {
+
+    private final long n;
+    private final double theta;
+    private final double zetaN;
+    private final double alpha;
+    private final double eta;
+    private final double halfPowTheta;
+
+    public ZipfianDistribution(long n, double theta) {
+        if (theta <= 0 || theta >= 1) {
+            throw new IllegalArgumentException("Zipf exponent must be in (0, 1), got " + theta);
+        }
+        this.n = n;
+        this.theta = theta;
+        this.zetaN = zeta(n, theta);
+        this.alpha = 1.0 / (1.0 - theta);
+        this.eta = (1 - Math.pow(2.0 / n, 1 - theta)) / (1 - zeta(2, theta) / zetaN);
+        this.halfPowTheta = Math.pow(0.5, theta);
+    }
+
+    @Override
+    public long next() {
+        double u = ThreadLocalRandom.current().nextDouble();
+        double uz = u * zetaN;
+        if (uz < 1.0 || n == 1) {
+            return 1;
+        }
+        if (uz < 1.0 + halfPowTheta) {
+            return 2;
+        }
+        return Math.min(n, 1 + (long) (n * Math.pow(eta * u - eta + 1, alpha)));
+    }
+
+    private static double zeta(long n, double theta) {
+        double sum = 0;
+        for (long i = 1; i <= n; i++) {
+            sum += 1.0 / Math.pow(i, theta);
+        }
+        return sum;
+    }
+
+    @Override
+    public String toString() {
+        return "zipfian(n=" + n + ", theta=" + theta + ")";
+    }
+}
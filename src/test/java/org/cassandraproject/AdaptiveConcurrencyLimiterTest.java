@@ -0,0 +1,139 @@
+package org.cassandraproject;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long TARGET_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SLOW = TimeUnit.SECONDS.toNanos(2);
+
+    private static AdaptiveConcurrencyLimiter fixed(int limit) {
+        return new AdaptiveConcurrencyLimiter(limit, limit, limit, TARGET_NANOS, 0.5);
+    }
+
+    @Test
+    void asyncPermitsAreTakenRightAwayBelowTheLimit() {
+        AdaptiveConcurrencyLimiter limiter = fixed(2);
+        assertTrue(limiter.acquireAsync().isDone());
+        assertTrue(limiter.acquireAsync().isDone());
+        assertEquals(0, limiter.getThrottled());
+
+        assertFalse(limiter.acquireAsync().isDone());
+        assertEquals(1, limiter.getThrottled());
+    }
+
+    @Test
+    void releaseHandsThePermitToTheOldestWaiter() {
+        AdaptiveConcurrencyLimiter limiter = fixed(1);
+        limiter.acquireAsync();
+        CompletableFuture<Void> first = limiter.acquireAsync();
+        CompletableFuture<Void> second = limiter.acquireAsync();
+
+        limiter.release(FAST, false);
+        assertTrue(first.isDone());
+        assertFalse(second.isDone());
+
+        // The permit went to the waiter, a new caller still has to queue
+        assertFalse(limiter.acquireAsync().isDone());
+
+        limiter.release(FAST, false);
+        assertTrue(second.isDone());
+    }
+
+    @Test
+    void waitersAreCompletedOutsideTheLock() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = fixed(1);
+        limiter.acquireAsync();
+        CountDownLatch readOnOtherThread = new CountDownLatch(1);
+        limiter.acquireAsync().thenRun(() -> {
+            // Would block on the limiter's lock if release() still held it
+            Thread reader = new Thread(() -> {
+                limiter.getLimit();
+                readOnOtherThread.countDown();
+            });
+            reader.start();
+            try {
+                reader.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        limiter.release(FAST, false);
+        assertTrue(readOnOtherThread.await(0, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void waitersWaitUntilInFlightFallsBelowAReducedLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 1, 4, TARGET_NANOS, 0.5);
+        for (int i = 0; i < 4; i++) {
+            limiter.acquireAsync();
+        }
+        CompletableFuture<Void> waiter = limiter.acquireAsync();
+
+        limiter.release(SLOW, false);
+        assertEquals(2, limiter.getLimit());
+        assertFalse(waiter.isDone());
+
+        limiter.release(FAST, false);
+        assertFalse(waiter.isDone());
+
+        limiter.release(FAST, false);
+        assertTrue(waiter.isDone());
+    }
+
+    @Test
+    void blockedCallersWakeUpOnRelease() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = fixed(1);
+        limiter.acquire();
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread caller = new Thread(() -> {
+            try {
+                limiter.acquire();
+                acquired.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        caller.start();
+        assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+
+        limiter.release(FAST, false);
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        caller.join();
+    }
+
+    @Test
+    void asyncWaitersAreServedBeforeBlockedCallers() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = fixed(1);
+        limiter.acquireAsync();
+        CompletableFuture<Void> waiter = limiter.acquireAsync();
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread caller = new Thread(() -> {
+            try {
+                limiter.acquire();
+                acquired.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        caller.start();
+
+        limiter.release(FAST, false);
+        assertTrue(waiter.isDone());
+        assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+
+        limiter.release(FAST, false);
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        caller.join();
+    }
+}
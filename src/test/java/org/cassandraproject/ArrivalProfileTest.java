@@ -0,0 +1,64 @@
+package org.cassandraproject;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArrivalProfileTest {
+
+    private static final double NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void burstStartsEveryClientAtOnce() {
+        assertEquals(0, ArrivalProfile.BURST.offsetNanos(0, 100, 10));
+        assertEquals(0, ArrivalProfile.BURST.offsetNanos(5000, 100, 10));
+    }
+
+    @Test
+    void constantSpacesClientsEvenly() {
+        assertEquals(0, ArrivalProfile.CONSTANT.offsetNanos(0, 100, 10));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(10), ArrivalProfile.CONSTANT.offsetNanos(1, 100, 10));
+        assertEquals(TimeUnit.SECONDS.toNanos(5), ArrivalProfile.CONSTANT.offsetNanos(500, 100, 10));
+    }
+
+    @Test
+    void rampInvertsTheArrivalCurve() {
+        double rate = 100;
+        double rampUp = 10;
+        // rate * t^2 / (2 * rampUp) clients have arrived after t seconds of the ramp
+        for (double t : new double[]{0.5, 1, 2.5, 5, 9.9}) {
+            long clientIndex = Math.round(rate * t * t / (2 * rampUp));
+            double expected = Math.sqrt(2 * rampUp * clientIndex / rate);
+            assertEquals(expected, ArrivalProfile.RAMP.offsetNanos(clientIndex, rate, rampUp) / NANOS, 1e-6);
+        }
+    }
+
+    @Test
+    void rampContinuesAtTheFullRateWithoutAJump() {
+        double rate = 100;
+        double rampUp = 10;
+        long rampArrivals = 500;
+        assertEquals(rampUp, ArrivalProfile.RAMP.offsetNanos(rampArrivals, rate, rampUp) / NANOS, 1e-6);
+        assertEquals(Math.sqrt(2 * rampUp * (rampArrivals - 1) / rate),
+                ArrivalProfile.RAMP.offsetNanos(rampArrivals - 1, rate, rampUp) / NANOS, 1e-6);
+        assertEquals(rampUp + 1, ArrivalProfile.RAMP.offsetNanos(rampArrivals + 100, rate, rampUp) / NANOS, 1e-6);
+    }
+
+    @Test
+    void rampOffsetsNeverDecrease() {
+        long previous = -1;
+        for (long i = 0; i < 2000; i++) {
+            long offset = ArrivalProfile.RAMP.offsetNanos(i, 100, 10);
+            assertTrue(offset >= previous, "client " + i);
+            previous = offset;
+        }
+    }
+
+    @Test
+    void rampWithoutRampUpIsConstant() {
+        assertEquals(ArrivalProfile.CONSTANT.offsetNanos(250, 100, 0), ArrivalProfile.RAMP.offsetNanos(250, 100, 0));
+    }
+}
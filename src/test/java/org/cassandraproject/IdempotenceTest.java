@@ -0,0 +1,91 @@
+package org.cassandraproject;
+
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.WriteType;
+import com.datastax.driver.core.exceptions.BootstrappingException;
+import com.datastax.driver.core.exceptions.InvalidQueryException;
+import com.datastax.driver.core.exceptions.NoHostAvailableException;
+import com.datastax.driver.core.exceptions.OperationTimedOutException;
+import com.datastax.driver.core.exceptions.OverloadedException;
+import com.datastax.driver.core.exceptions.ReadTimeoutException;
+import com.datastax.driver.core.exceptions.UnavailableException;
+import com.datastax.driver.core.exceptions.WriteTimeoutException;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Which statements may be retried after a timeout ({@link StatementRegistry#isIdempotent(String)}) and which
+ * errors are retried at all ({@link RetryingExecutor#isRetryable(Throwable, boolean)}).
+ */
+class IdempotenceTest {
+
+    private static final InetSocketAddress HOST = new InetSocketAddress("127.0.0.1", 9042);
+
+    @Test
+    void plainReadsAndWritesAreIdempotent() {
+        assertTrue(StatementRegistry.isIdempotent("SELECT user_id, seat_id, request_time FROM reservation_requests WHERE match_id = ?;"));
+        assertTrue(StatementRegistry.isIdempotent("INSERT INTO users (id,name) VALUES (?, ?);"));
+        assertTrue(StatementRegistry.isIdempotent("DELETE FROM reservation_requests WHERE match_id = ? AND user_id = ?;"));
+        assertTrue(StatementRegistry.isIdempotent("UPDATE users SET name = ? WHERE id = ?;"));
+    }
+
+    @Test
+    void lightweightTransactionsAreNot() {
+        assertFalse(StatementRegistry.isIdempotent("INSERT INTO match_seats (match_id, seat_id, user_id) VALUES (?, ?, ?) IF NOT EXISTS;"));
+        assertFalse(StatementRegistry.isIdempotent("DELETE FROM match_seats WHERE match_id = ? AND seat_id = ? IF user_id = ?;"));
+        assertFalse(StatementRegistry.isIdempotent("update users set name = ? where id = ? if exists;"));
+    }
+
+    @Test
+    void serverClockIsNot() {
+        assertFalse(StatementRegistry.isIdempotent("INSERT INTO reservation_requests (match_id, user_id, seat_id, request_time) VALUES (?, ?, ?, dateof(now()));"));
+        assertFalse(StatementRegistry.isIdempotent("INSERT INTO seed_manifest (table_name, updated_at) VALUES (?, toTimestamp(now()));"));
+    }
+
+    @Test
+    void counterUpdatesAreNot() {
+        assertFalse(StatementRegistry.isIdempotent("UPDATE match_counters SET seats_sold = seats_sold + ?, pending = pending + ? WHERE match_id = ? AND sector_id = ?;"));
+        assertFalse(StatementRegistry.isIdempotent("UPDATE match_counters SET pending=pending-1 WHERE match_id = ?;"));
+        // Assigning one column from another is not a counter update
+        assertTrue(StatementRegistry.isIdempotent("UPDATE t SET a = ? WHERE b = ?;"));
+    }
+
+    @Test
+    void errorsBeforeTheWriteAreAlwaysRetried() {
+        for (boolean idempotent : new boolean[]{true, false}) {
+            assertTrue(RetryingExecutor.isRetryable(new UnavailableException(ConsistencyLevel.QUORUM, 2, 1), idempotent));
+            assertTrue(RetryingExecutor.isRetryable(new OverloadedException(HOST, "overloaded"), idempotent));
+            assertTrue(RetryingExecutor.isRetryable(new BootstrappingException(HOST, "bootstrapping"), idempotent));
+            assertTrue(RetryingExecutor.isRetryable(new NoHostAvailableException(Collections.emptyMap()), idempotent));
+        }
+    }
+
+    @Test
+    void timeoutsAreOnlyRetriedWhenIdempotent() {
+        WriteTimeoutException writeTimeout = new WriteTimeoutException(ConsistencyLevel.QUORUM, WriteType.CAS, 1, 2);
+        ReadTimeoutException readTimeout = new ReadTimeoutException(ConsistencyLevel.QUORUM, 1, 2, true);
+        OperationTimedOutException clientTimeout = new OperationTimedOutException(HOST);
+        NoHostAvailableException allTimedOut = new NoHostAvailableException(Collections.singletonMap(HOST, clientTimeout));
+
+        assertTrue(RetryingExecutor.isRetryable(writeTimeout, true));
+        assertTrue(RetryingExecutor.isRetryable(readTimeout, true));
+        assertTrue(RetryingExecutor.isRetryable(clientTimeout, true));
+        assertTrue(RetryingExecutor.isRetryable(allTimedOut, true));
+
+        assertFalse(RetryingExecutor.isRetryable(writeTimeout, false));
+        assertFalse(RetryingExecutor.isRetryable(readTimeout, false));
+        assertFalse(RetryingExecutor.isRetryable(clientTimeout, false));
+        assertFalse(RetryingExecutor.isRetryable(allTimedOut, false));
+    }
+
+    @Test
+    void otherErrorsAreNeverRetried() {
+        assertFalse(RetryingExecutor.isRetryable(new InvalidQueryException("bad query"), true));
+        assertFalse(RetryingExecutor.isRetryable(new IllegalStateException(), true));
+    }
+}
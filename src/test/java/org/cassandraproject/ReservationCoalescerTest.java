@@ -0,0 +1,136 @@
+package org.cassandraproject;
+
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.SimpleStatement;
+import com.datastax.driver.core.Statement;
+import org.cassandraproject.metrics.LoadTestMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReservationCoalescerTest {
+
+    private final RecordingExecutor executor = new RecordingExecutor();
+    private ReservationCoalescer coalescer;
+
+    @AfterEach
+    void close() {
+        if (coalescer != null) {
+            coalescer.close();
+        }
+        executor.close();
+    }
+
+    @Test
+    void fullBufferIsSentRightAwayAndDropped() {
+        coalescer = new ReservationCoalescer(executor, new LoadTestMetrics(), TimeUnit.SECONDS.toMicros(60), 2);
+        CompletableFuture<Void> first = coalescer.add(1L, statement());
+        assertFalse(first.isDone());
+        assertEquals(1, coalescer.size());
+
+        CompletableFuture<Void> second = coalescer.add(1L, statement());
+        assertTrue(first.isDone());
+        assertTrue(second.isDone());
+        assertEquals(1, executor.batches.get());
+        // The flush scheduled by the first write still holds the buffer until it runs
+        assertEquals(1, coalescer.size());
+    }
+
+    @Test
+    void windowFlushSendsAndDropsTheBuffer() {
+        coalescer = new ReservationCoalescer(executor, new LoadTestMetrics(), 1_000, 100);
+        CompletableFuture<Void> first = coalescer.add(1L, statement());
+        CompletableFuture<Void> other = coalescer.add(2L, statement());
+
+        first.join();
+        other.join();
+        assertEquals(2, executor.batches.get());
+        assertEquals(0, coalescer.size());
+    }
+
+    @Test
+    void writesAfterARemovedBufferGoToANewOne() {
+        coalescer = new ReservationCoalescer(executor, new LoadTestMetrics(), TimeUnit.SECONDS.toMicros(60), 1);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(coalescer.add(1L, statement()).isDone());
+            assertEquals(0, coalescer.size());
+        }
+        assertEquals(3, executor.batches.get());
+    }
+
+    @Test
+    void concurrentWritersRacingARemovalLoseNothing() throws InterruptedException {
+        // Every write fills and drops the buffer, so writers keep finding buffers that were just removed
+        coalescer = new ReservationCoalescer(executor, new LoadTestMetrics(), TimeUnit.SECONDS.toMicros(60), 1);
+        int threads = 8;
+        int writesPerThread = 5_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<Void>> written = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread writer = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < writesPerThread; i++) {
+                    written.add(coalescer.add(1L, statement()));
+                }
+            });
+            writer.start();
+            writers.add(writer);
+        }
+        start.countDown();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        CompletableFuture.allOf(written.toArray(new CompletableFuture<?>[0])).join();
+        assertEquals(threads * writesPerThread, executor.sent.size());
+        assertEquals(0, executor.duplicates.get());
+        assertEquals(0, coalescer.size());
+    }
+
+    private static Statement statement() {
+        return new SimpleStatement("INSERT INTO t (a) VALUES (1);");
+    }
+
+    /**
+     * Acknowledges every batch right away and remembers which statements it was sent.
+     */
+    private static final class RecordingExecutor extends RetryingExecutor {
+        private final AtomicInteger batches = new AtomicInteger();
+        private final AtomicInteger duplicates = new AtomicInteger();
+        private final Set<Statement> sent = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<Statement, Boolean>()));
+
+        private RecordingExecutor() {
+            super(null, 1, 0, 0);
+        }
+
+        @Override
+        public CompletableFuture<ResultSet> executeAsync(Statement statement) {
+            batches.incrementAndGet();
+            for (Statement child : ((BatchStatement) statement).getStatements()) {
+                if (!sent.add(child)) {
+                    duplicates.incrementAndGet();
+                }
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+}
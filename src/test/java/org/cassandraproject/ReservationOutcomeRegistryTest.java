@@ -0,0 +1,103 @@
+package org.cassandraproject;
+
+import org.cassandraproject.metrics.LoadTestMetrics;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class ReservationOutcomeRegistryTest {
+
+    private final ReservationOutcomeRegistry registry = new ReservationOutcomeRegistry(new LoadTestMetrics());
+
+    @Test
+    void sameRequestSharesOneRegistration() {
+        CompletableFuture<ReservationOutcome> first = registry.register(1, 7, 42);
+        CompletableFuture<ReservationOutcome> second = registry.register(1, 7, 42);
+        registry.register(1, 7, 43);
+        assertEquals(2, registry.size());
+
+        registry.complete(1, 7, 42, ReservationOutcome.GRANTED);
+        assertEquals(ReservationOutcome.GRANTED, first.join());
+        assertEquals(ReservationOutcome.GRANTED, second.join());
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    void everyCallerGetsAFutureOfItsOwn() {
+        CompletableFuture<ReservationOutcome> abandoned = registry.register(1, 7, 42);
+        CompletableFuture<ReservationOutcome> waiting = registry.register(1, 7, 42);
+        abandoned.cancel(false);
+
+        registry.complete(1, 7, 42, ReservationOutcome.SEAT_TAKEN);
+        assertEquals(ReservationOutcome.SEAT_TAKEN, waiting.join());
+    }
+
+    @Test
+    void forgetDropsTheRegistrationWithItsLastWaiter() {
+        CompletableFuture<ReservationOutcome> first = registry.register(1, 7, 42);
+        CompletableFuture<ReservationOutcome> second = registry.register(1, 7, 42);
+
+        registry.forget(1, 7, 42);
+        assertEquals(1, registry.size());
+        registry.complete(1, 7, 42, ReservationOutcome.GRANTED);
+        assertEquals(ReservationOutcome.GRANTED, second.join());
+        assertEquals(ReservationOutcome.GRANTED, first.join());
+        assertEquals(0, registry.size());
+
+        registry.register(1, 7, 42);
+        registry.forget(1, 7, 42);
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    void completeOrForgetWithoutRegistrationIsANoOp() {
+        registry.forget(1, 7, 42);
+        registry.complete(1, 7, 42, ReservationOutcome.GRANTED);
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    void registeringAgainAfterTheDecisionWaitsForTheNextOne() {
+        registry.register(1, 7, 42);
+        registry.complete(1, 7, 42, ReservationOutcome.SEAT_TAKEN);
+
+        CompletableFuture<ReservationOutcome> again = registry.register(1, 7, 42);
+        assertFalse(again.isDone());
+        registry.complete(1, 7, 42, ReservationOutcome.GRANTED);
+        assertEquals(ReservationOutcome.GRANTED, again.join());
+    }
+
+    @Test
+    void concurrentRegisterAndForgetLeaveNothingBehind() throws InterruptedException {
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 10_000; i++) {
+                    registry.register(1, i % 4, 42);
+                    registry.forget(1, i % 4, 42);
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(0, registry.size());
+        assertFalse(registry.register(1, 0, 42).isDone());
+    }
+}
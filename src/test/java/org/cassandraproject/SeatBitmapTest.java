@@ -0,0 +1,87 @@
+package org.cassandraproject;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SeatBitmapTest {
+
+    private static SeatAvailabilityCache.SeatBitmap taken(int totalSeats, long... seatIds) {
+        SeatAvailabilityCache.SeatBitmap bitmap = new SeatAvailabilityCache.SeatBitmap(totalSeats);
+        for (long seatId : seatIds) {
+            bitmap.markTaken(seatId);
+        }
+        return bitmap;
+    }
+
+    private static SeatAvailabilityCache.SeatBitmap allTakenExcept(int totalSeats, long freeSeatId) {
+        SeatAvailabilityCache.SeatBitmap bitmap = new SeatAvailabilityCache.SeatBitmap(totalSeats);
+        for (long seatId = 1; seatId <= totalSeats; seatId++) {
+            if (seatId != freeSeatId) {
+                bitmap.markTaken(seatId);
+            }
+        }
+        return bitmap;
+    }
+
+    @Test
+    void startsAtTheRequestedSeat() {
+        assertEquals(1, taken(100).nextFree(1));
+        assertEquals(42, taken(100).nextFree(42));
+        assertEquals(44, taken(100, 42, 43).nextFree(42));
+    }
+
+    @Test
+    void crossesWordEdges() {
+        assertEquals(64, taken(200, 63).nextFree(63));
+        assertEquals(65, taken(200, 64).nextFree(64));
+        assertEquals(129, allTakenExcept(200, 129).nextFree(2));
+        assertEquals(128, allTakenExcept(200, 128).nextFree(2));
+    }
+
+    @Test
+    void wrapsAroundToSeatsBeforeTheStart() {
+        assertEquals(3, allTakenExcept(100, 3).nextFree(50));
+        assertEquals(1, allTakenExcept(100, 1).nextFree(100));
+    }
+
+    @Test
+    void wrapsAroundToLowerBitsOfTheStartingWord() {
+        // Seat 5 shares the word of seat 10 but lies before it, so it is only reached after wrapping
+        assertEquals(5, allTakenExcept(64, 5).nextFree(10));
+        assertEquals(5, allTakenExcept(200, 5).nextFree(10));
+    }
+
+    @Test
+    void ignoresBitsPastTheLastSeat() {
+        // 70 seats use two words; bits 70..127 of the second word are never set
+        assertEquals(1, taken(70, 70).nextFree(70));
+        assertEquals(-1, allTakenExcept(70, 0).nextFree(65));
+    }
+
+    @Test
+    void normalizesSeatIdsOutsideTheStadium() {
+        assertEquals(1, taken(100).nextFree(101));
+        assertEquals(100, taken(100).nextFree(0));
+        assertEquals(99, taken(100).nextFree(-1));
+    }
+
+    @Test
+    void reportsSoldOut() {
+        assertEquals(-1, allTakenExcept(128, 0).nextFree(1));
+        assertEquals(-1, allTakenExcept(1, 0).nextFree(1));
+        assertEquals(-1, taken(0).nextFree(1));
+    }
+
+    @Test
+    void marksEachSeatOnce() {
+        SeatAvailabilityCache.SeatBitmap bitmap = taken(10);
+        assertTrue(bitmap.markTaken(10));
+        assertFalse(bitmap.markTaken(10));
+        assertFalse(bitmap.markTaken(11));
+        assertTrue(bitmap.isTaken(10));
+        assertFalse(bitmap.isTaken(11));
+    }
+}
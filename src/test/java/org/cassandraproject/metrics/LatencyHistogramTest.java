@@ -0,0 +1,52 @@
+package org.cassandraproject.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LatencyHistogramTest {
+
+    // 128 linear buckets, then 64 sub-buckets for each exponent from 7 to 40
+    private static final int BUCKETS = 128 + 34 * 64;
+
+    @Test
+    void linearBucketsHoldOneMicrosecondEach() {
+        for (long micros = 0; micros < 128; micros++) {
+            assertEquals(micros, LatencyHistogram.bucketOf(micros));
+            assertEquals(micros, LatencyHistogram.upperBound((int) micros));
+        }
+    }
+
+    @Test
+    void firstLogBucketStartsAfterTheLinearRange() {
+        assertEquals(128, LatencyHistogram.bucketOf(128));
+        assertEquals(128, LatencyHistogram.bucketOf(129));
+        assertEquals(129, LatencyHistogram.bucketOf(130));
+        assertEquals(129, LatencyHistogram.upperBound(128));
+    }
+
+    @Test
+    void exponentChangeStartsANewRowOfSubBuckets() {
+        assertEquals(128 + 63, LatencyHistogram.bucketOf(255));
+        assertEquals(128 + 64, LatencyHistogram.bucketOf(256));
+        assertEquals(255, LatencyHistogram.upperBound(128 + 63));
+        assertEquals(259, LatencyHistogram.upperBound(128 + 64));
+    }
+
+    @Test
+    void everyBucketEndsRightBeforeTheNextOne() {
+        for (int bucket = 0; bucket < BUCKETS - 1; bucket++) {
+            long upper = LatencyHistogram.upperBound(bucket);
+            assertEquals(bucket, LatencyHistogram.bucketOf(upper), "upper bound of bucket " + bucket);
+            assertEquals(bucket + 1, LatencyHistogram.bucketOf(upper + 1), "value after bucket " + bucket);
+        }
+    }
+
+    @Test
+    void valuesBeyondTheLastExponentGoToTheLastBucket() {
+        assertEquals(BUCKETS - 1, LatencyHistogram.bucketOf((1L << 41) - 1));
+        assertEquals(BUCKETS - 1, LatencyHistogram.bucketOf(1L << 41));
+        assertEquals(BUCKETS - 1, LatencyHistogram.bucketOf(Long.MAX_VALUE));
+        assertEquals((1L << 41) - 1, LatencyHistogram.upperBound(BUCKETS - 1));
+    }
+}